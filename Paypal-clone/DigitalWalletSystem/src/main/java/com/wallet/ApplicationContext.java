@@ -1,19 +1,58 @@
 package main.java.com.wallet;
 
+import main.java.com.wallet.history.HistoryStore;
 import main.java.com.wallet.repository.WalletRepository;
+import main.java.com.wallet.service.CampaignService;
 import main.java.com.wallet.service.OfferService;
 import main.java.com.wallet.service.WalletService;
+import main.java.com.wallet.trace.RecordingWalletService;
+import main.java.com.wallet.trace.TraceWriter;
+
+import java.nio.file.Paths;
 
 public class ApplicationContext {
     private final WalletService walletService;
     private final OfferService offerService;
+    private final CampaignService campaignService;
 
     public ApplicationContext() {
         WalletRepository repository = new WalletRepository();
 
-        this.walletService = new WalletService(repository);
+        this.walletService = createWalletService(repository, createHistoryStore());
 
         this.offerService = new OfferService(walletService);
+
+        this.campaignService = new CampaignService(walletService);
+    }
+
+    /**
+     * Setting wallet.trace.file captures every WalletService call to that file
+     * for later replay; the trace is flushed when the JVM exits.
+     */
+    private static WalletService createWalletService(WalletRepository repository, HistoryStore historyStore) {
+        String traceFile = System.getProperty("wallet.trace.file");
+        if (traceFile == null || traceFile.isEmpty()) {
+            return new WalletService(repository, historyStore);
+        }
+        RecordingWalletService recording = new RecordingWalletService(repository, historyStore,
+                TraceWriter.open(Paths.get(traceFile)));
+        Runtime.getRuntime().addShutdownHook(new Thread(recording::close, "wallet-trace-close"));
+        return recording;
+    }
+
+    /**
+     * Statements stay on heap unless wallet.history.dir is set, in which case
+     * wallet.history.globalBudget and wallet.history.walletBudget cap the
+     * number of entries kept in memory (0 = unlimited).
+     */
+    private static HistoryStore createHistoryStore() {
+        String dir = System.getProperty("wallet.history.dir");
+        if (dir == null || dir.isEmpty()) {
+            return HistoryStore.inMemory();
+        }
+        long globalBudget = Long.getLong("wallet.history.globalBudget", 1_000_000L);
+        int walletBudget = Integer.getInteger("wallet.history.walletBudget", 1_000);
+        return HistoryStore.onDisk(Paths.get(dir), globalBudget, walletBudget);
     }
 
     public WalletService getWalletService() {
@@ -23,4 +62,8 @@ public class ApplicationContext {
     public OfferService getOfferService() {
         return offerService;
     }
+
+    public CampaignService getCampaignService() {
+        return campaignService;
+    }
 }
\ No newline at end of file
@@ -1,21 +1,45 @@
 package main.java.com.wallet;
 
+import main.java.com.wallet.cluster.WalletCluster;
+import main.java.com.wallet.cluster.WalletShard;
+import main.java.com.wallet.history.HistoryStore;
+import main.java.com.wallet.model.Campaign;
 import main.java.com.wallet.model.InputCommandType;
+import main.java.com.wallet.model.TransferLeg;
 import main.java.com.wallet.model.Wallet;
 import main.java.com.wallet.repository.WalletRepository;
+import main.java.com.wallet.server.LoadDriver;
+import main.java.com.wallet.server.WalletServer;
+import main.java.com.wallet.service.CampaignRun;
+import main.java.com.wallet.service.CampaignService;
 import main.java.com.wallet.service.OfferService;
 import main.java.com.wallet.service.WalletService;
+import main.java.com.wallet.trace.RecordingWalletService;
+import main.java.com.wallet.trace.TraceReader;
+import main.java.com.wallet.trace.TraceReplayer;
+import main.java.com.wallet.trace.TraceWriter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class DigitalWalletSystem {
+    private static final int DEFAULT_SERVER_PORT = 9500;
+    private static final int SERVER_WORKERS = Runtime.getRuntime().availableProcessors() * 8;
+    private static final int SERVER_MAX_IN_FLIGHT = 1024;
 
     public static void main(String[] args) {
         // Check if user wants to run performance test
@@ -24,6 +48,51 @@ public class DigitalWalletSystem {
             return;
         }
 
+        if (args.length > 0 && args[0].equals("--cluster-perf-test")) {
+            runClusterScalingTest(new int[]{1, 2, 4, 8}, 10000, 5);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--split-perf-test")) {
+            try {
+                runSplitTransferTest(new int[]{1, 10, 100, 500}, 2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--campaign-perf-test")) {
+            runCampaignTest(500000);
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--capture")) {
+            runCapture(Paths.get(args[1]), 1000, 16, 5000);
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--replay")) {
+            try {
+                // Speed: 1 = captured pace (default), N = N times faster, max = unpaced
+                double speed = args.length > 2 ? (args[2].equals("max") ? 0 : Double.parseDouble(args[2])) : 1;
+                runReplay(Paths.get(args[1]), speed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServerMode(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--load-test")) {
+            runLoadTest(args);
+            return;
+        }
+
         // Normal operation with input.txt
         runNormalMode();
     }
@@ -32,6 +101,7 @@ public class DigitalWalletSystem {
         final ApplicationContext context = new ApplicationContext();
         final WalletService walletService = context.getWalletService();
         final OfferService offerService = context.getOfferService();
+        final CampaignService campaignService = context.getCampaignService();
 
         Scanner scanner = null;
         try {
@@ -64,6 +134,15 @@ public class DigitalWalletSystem {
                         walletService.transferMoney(parts[1], parts[2], new BigDecimal(parts[3]));
                         break;
 
+                    case SPLIT_TRANSFER:
+                        // SplitTransfer <from> <to1> <amount1> [<to2> <amount2> ...]
+                        List<TransferLeg> legs = new ArrayList<>();
+                        for (int i = 2; i + 1 < parts.length; i += 2) {
+                            legs.add(new TransferLeg(parts[1], parts[i], new BigDecimal(parts[i + 1])));
+                        }
+                        walletService.transferMulti(legs);
+                        break;
+
                     case STATEMENT:
                         walletService.printStatement(parts[1]);
                         break;
@@ -72,10 +151,40 @@ public class DigitalWalletSystem {
                         walletService.printOverview();
                         break;
 
+                    case BALANCES:
+                        // Balances Top <n> | Balances Range <min> <max> | Balances Percentile <p>
+                        if (parts[1].equals("Top")) {
+                            walletService.printBalances(walletService.getRichest(Integer.parseInt(parts[2])));
+                        } else if (parts[1].equals("Range")) {
+                            BigDecimal min = new BigDecimal(parts[2]);
+                            BigDecimal max = new BigDecimal(parts[3]);
+                            System.out.println(walletService.countWalletsInRange(min, max) + " wallets");
+                            walletService.printBalances(walletService.getWalletsInRange(min, max));
+                        } else {
+                            System.out.println("p" + parts[2] + " "
+                                    + walletService.getBalancePercentile(Double.parseDouble(parts[2])).stripTrailingZeros().toPlainString());
+                        }
+                        break;
+
+                    case ACTIVITY:
+                        walletService.printActivity(parts[1]);
+                        break;
+
                     case OFFER2:
                         offerService.triggerOffer2();
                         break;
 
+                    case CAMPAIGN:
+                        // Campaign Cashback <amount> | Campaign Interest <ratePercent>
+                        Campaign campaign = parts[1].equals("Interest")
+                                ? Campaign.interest("Interest", new BigDecimal(parts[2]), BigDecimal.ZERO)
+                                : Campaign.cashback("Cashback", new BigDecimal(parts[2]), 1);
+                        CampaignRun run = campaignService.start(campaign);
+                        System.out.println("Campaign " + campaign.getName() + " credited " + run.getCredited()
+                                + " of " + run.getWalletCount() + " wallets, total "
+                                + run.getTotalCredited().stripTrailingZeros().toPlainString());
+                        break;
+
                     case FIXED_DEPOSIT:
                         walletService.createFixedDeposit(parts[1], new BigDecimal(parts[2]));
                         break;
@@ -94,6 +203,47 @@ public class DigitalWalletSystem {
         scanner.close();
     }
 
+    /**
+     * Server mode - exposes WalletService over the binary protocol until killed
+     */
+    private static void runServerMode(int port) {
+        try {
+            WalletServer server = new WalletServer(new ApplicationContext(), port, SERVER_WORKERS, SERVER_MAX_IN_FLIGHT);
+            server.start();
+            System.out.println("Wallet server listening on port " + server.getPort());
+        } catch (IOException e) {
+            System.err.println("Failed to start wallet server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load test mode - drives a remote server, or an embedded one over loopback
+     * when no host is given: --load-test [host port]
+     */
+    private static void runLoadTest(String[] args) {
+        WalletServer embedded = null;
+        try {
+            String host = "127.0.0.1";
+            int port;
+            if (args.length > 2) {
+                host = args[1];
+                port = Integer.parseInt(args[2]);
+            } else {
+                embedded = new WalletServer(new ApplicationContext(), 0, SERVER_WORKERS, SERVER_MAX_IN_FLIGHT);
+                embedded.start();
+                port = embedded.getPort();
+            }
+            new LoadDriver(host, port, 64, 64).run(10000, 100000);
+        } catch (Exception e) {
+            System.err.println("Load test failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
     /**
      * Performance test mode - validates 10K+ TPS
      */
@@ -308,6 +458,256 @@ public class DigitalWalletSystem {
         System.out.println();
     }
 
+    /**
+     * Cluster mode - measures how TPS scales as shards are added
+     */
+    private static void runClusterScalingTest(int[] shardCounts, int numUsers, int transactionsPerUser) {
+        System.out.println("Run cluster scaling test...");
+
+        int clientThreads = 64;
+        int totalTransactions = numUsers * transactionsPerUser;
+        System.out.println("  Wallets: " + numUsers + ", Transactions: " + String.format("%,d", totalTransactions)
+                + ", Client threads: " + clientThreads + "\n");
+        System.out.println(String.format("  %-8s %-12s %-10s %-12s %-10s", "Shards", "Duration", "Failed", "Throughput", "Speedup"));
+
+        double baselineTps = 0;
+        for (int shardCount : shardCounts) {
+            try (WalletCluster cluster = WalletCluster.inProcess(shardCount, 8, 200)) {
+                for (int i = 0; i < numUsers; i++) {
+                    cluster.createWallet("User" + i, new BigDecimal("10000"));
+                }
+
+                AtomicInteger failCount = new AtomicInteger(0);
+                CountDownLatch latch = new CountDownLatch(totalTransactions);
+                ExecutorService executor = Executors.newFixedThreadPool(clientThreads);
+
+                long startTime = System.currentTimeMillis();
+                for (int i = 0; i < totalTransactions; i++) {
+                    final int from = i % numUsers;
+                    executor.submit(() -> {
+                        try {
+                            int to = ThreadLocalRandom.current().nextInt(numUsers);
+                            if (to == from) {
+                                to = (to + 1) % numUsers;
+                            }
+                            cluster.transferMoney("User" + from, "User" + to, new BigDecimal("20"));
+                        } catch (Exception e) {
+                            failCount.incrementAndGet();
+                        } finally {
+                            latch.countDown();
+                        }
+                    });
+                }
+                latch.await();
+                long duration = System.currentTimeMillis() - startTime;
+
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+                cluster.recoverInDoubtTransfers();
+
+                double tps = (totalTransactions * 1000.0) / duration;
+                if (baselineTps == 0) {
+                    baselineTps = tps;
+                }
+                System.out.println(String.format("  %-8d %-12s %-10d %-12s %-10s", shardCount, duration + " ms",
+                        failCount.get(), String.format("%.0f TPS", tps), String.format("%.2fx", tps / baselineTps)));
+
+                verifyClusterBalance(cluster, new BigDecimal("10000").multiply(new BigDecimal(numUsers)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Multi-leg mode - measures how atomic split transfers scale with leg count
+     */
+    private static void runSplitTransferTest(int[] legCounts, int numUsers) throws InterruptedException {
+        System.out.println("Run split transfer test...");
+        System.out.println(String.format("  %-8s %-12s %-10s %-16s %-12s", "Legs", "Transfers", "Failed", "Transfers/sec", "Legs/sec"));
+
+        int threadCount = Runtime.getRuntime().availableProcessors() * 2;
+        for (int legCount : legCounts) {
+            WalletRepository repo = new WalletRepository();
+            WalletService service = new WalletService(repo);
+            for (int i = 0; i < numUsers; i++) {
+                service.createWallet("User" + i, new BigDecimal("1000000"));
+            }
+
+            int transfers = Math.max(200, 20000 / legCount);
+            AtomicInteger failCount = new AtomicInteger(0);
+            CountDownLatch latch = new CountDownLatch(transfers);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+            long startTime = System.nanoTime();
+            for (int t = 0; t < transfers; t++) {
+                executor.submit(() -> {
+                    try {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        String from = "User" + random.nextInt(numUsers);
+                        List<TransferLeg> legs = new ArrayList<>(legCount);
+                        for (int l = 0; l < legCount; l++) {
+                            String to = "User" + random.nextInt(numUsers);
+                            if (!to.equals(from)) {
+                                legs.add(new TransferLeg(from, to, new BigDecimal("1")));
+                            }
+                        }
+                        service.transferMulti(legs);
+                    } catch (Exception e) {
+                        failCount.incrementAndGet();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+            double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+
+            System.out.println(String.format("  %-8d %-12s %-10d %-16s %-12s", legCount, String.format("%,d", transfers),
+                    failCount.get(), String.format("%.0f", transfers / seconds),
+                    String.format("%.0f", transfers * (double) legCount / seconds)));
+            verifyTotalBalance(repo, numUsers, new BigDecimal("1000000"));
+        }
+        System.out.println();
+    }
+
+    /**
+     * Campaign mode - credits every wallet while transfers keep running
+     */
+    private static void runCampaignTest(int numUsers) {
+        System.out.println("Run campaign test...");
+
+        WalletRepository repo = new WalletRepository();
+        WalletService service = new WalletService(repo);
+        CampaignService campaignService = new CampaignService(service);
+
+        System.out.print("Creating " + numUsers + " wallets... ");
+        for (int i = 0; i < numUsers; i++) {
+            service.createWallet("User" + i, new BigDecimal("1000"));
+        }
+        System.out.println("✓");
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger transfers = new AtomicInteger(0);
+        Thread background = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running.get()) {
+                int from = random.nextInt(numUsers);
+                int to = (from + 1 + random.nextInt(numUsers - 1)) % numUsers;
+                try {
+                    service.transferMulti(List.of(new TransferLeg("User" + from, "User" + to, BigDecimal.ONE)));
+                    transfers.incrementAndGet();
+                } catch (Exception ignored) {
+                }
+            }
+        });
+        background.start();
+
+        long startTime = System.currentTimeMillis();
+        CampaignRun run = campaignService.start(Campaign.interest("Interest", new BigDecimal("1.5"), BigDecimal.ZERO));
+        long duration = System.currentTimeMillis() - startTime;
+        running.set(false);
+
+        System.out.println("\nResults:");
+        System.out.println("  Wallets credited: " + String.format("%,d", run.getCredited()));
+        System.out.println("  Total credited: " + run.getTotalCredited().stripTrailingZeros().toPlainString());
+        System.out.println("  Concurrent transfers: " + String.format("%,d", transfers.get()));
+        System.out.println("  Duration: " + duration + " ms");
+        System.out.println("  Throughput: " + String.format("%.0f credits/sec", run.getCredited() * 1000.0 / Math.max(1, duration)));
+        System.out.println();
+    }
+
+    /**
+     * Capture mode - records a mixed concurrent workload to a trace file
+     */
+    private static void runCapture(Path traceFile, int numUsers, int threadCount, int opsPerThread) {
+        System.out.println("Capture workload to " + traceFile + "...");
+
+        try (RecordingWalletService service = new RecordingWalletService(new WalletRepository(),
+                HistoryStore.inMemory(), TraceWriter.open(traceFile))) {
+            for (int i = 0; i < numUsers; i++) {
+                service.createWallet("User" + i, new BigDecimal("1000"));
+            }
+
+            Thread[] threads = new Thread[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                threads[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        String from = "User" + random.nextInt(numUsers);
+                        String to = "User" + random.nextInt(numUsers);
+                        BigDecimal amount = new BigDecimal(random.nextInt(1, 100));
+                        int pick = random.nextInt(100);
+                        try {
+                            if (pick < 85) {
+                                if (!from.equals(to)) service.transferMoney(from, to, amount);
+                            } else if (pick < 95) {
+                                service.getStatement(from);
+                            } else {
+                                service.transferMulti(List.of(new TransferLeg(from, to, amount),
+                                        new TransferLeg(to, "User" + random.nextInt(numUsers), amount)));
+                            }
+                        } catch (Exception ignored) {
+                        }
+                        // Think time, so the capture has a pace worth replaying
+                        LockSupport.parkNanos(random.nextLong(50_000, 500_000));
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            System.out.println("\nResults:");
+            System.out.println("  Calls captured: " + String.format("%,d", service.getTrace().getRecordCount()));
+            System.out.println("  Captured over: " + (service.getTrace().getElapsedNanos() / 1_000_000) + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            System.out.println("  Trace size: " + String.format("%,d", Files.size(traceFile)) + " bytes");
+        } catch (IOException ignored) {
+        }
+        System.out.println();
+    }
+
+    /**
+     * Replay mode - runs one trace against each engine configuration
+     */
+    private static void runReplay(Path traceFile, double speed) throws InterruptedException {
+        TraceReplayer replayer = new TraceReplayer(TraceReader.readAll(traceFile));
+
+        replayer.run("in-memory history", new WalletService(new WalletRepository(), HistoryStore.inMemory()), speed);
+
+        Path historyDir = Paths.get(System.getProperty("java.io.tmpdir"), "wallet-replay-" + System.nanoTime());
+        try (HistoryStore tiered = HistoryStore.onDisk(historyDir, 10_000, 50)) {
+            replayer.run("tiered history", new WalletService(new WalletRepository(), tiered), speed);
+        }
+        try {
+            Files.deleteIfExists(historyDir);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // The cluster pays no rewards, so money must be conserved exactly, holds included
+    private static void verifyClusterBalance(WalletCluster cluster, BigDecimal expectedTotal) {
+        BigDecimal totalBalance = BigDecimal.ZERO;
+        for (WalletShard shard : cluster.getShards()) {
+            for (Wallet w : shard.getRepository().getAll()) {
+                totalBalance = totalBalance.add(w.getBalance()).add(w.getReserved());
+            }
+        }
+        if (totalBalance.compareTo(expectedTotal) != 0) {
+            throw new RuntimeException("Cluster balance verification failed: expected "
+                    + expectedTotal.toPlainString() + " but found " + totalBalance.toPlainString());
+        }
+    }
+
     private static void verifyTotalBalance(WalletRepository repo, int numUsers, BigDecimal initialBalance) {
         BigDecimal totalBalance = BigDecimal.ZERO;
         for (int i = 0; i < numUsers; i++) {
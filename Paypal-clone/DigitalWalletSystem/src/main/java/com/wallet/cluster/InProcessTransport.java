@@ -0,0 +1,49 @@
+package main.java.com.wallet.cluster;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every shard inside this JVM, each behind its own worker pool so that
+ * shards only share work through messages, like separate nodes would.
+ */
+public class InProcessTransport implements ShardTransport {
+    private final List<WalletShard> shards;
+    private final ExecutorService[] executors;
+
+    public InProcessTransport(List<WalletShard> shards, int workersPerShard) {
+        this.shards = shards;
+        this.executors = new ExecutorService[shards.size()];
+        for (int i = 0; i < executors.length; i++) {
+            final int shardId = i;
+            executors[i] = Executors.newFixedThreadPool(workersPerShard, r -> {
+                Thread t = new Thread(r, "shard-" + shardId);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> send(int shardId, ShardRequest<T> request) {
+        WalletShard shard = shards.get(shardId);
+        return CompletableFuture.supplyAsync(() -> request.apply(shard), executors[shardId]);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        try {
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package main.java.com.wallet.cluster;
+
+/**
+ * Operation executed on the shard that receives it.
+ */
+@FunctionalInterface
+public interface ShardRequest<T> {
+    T apply(WalletShard shard);
+}
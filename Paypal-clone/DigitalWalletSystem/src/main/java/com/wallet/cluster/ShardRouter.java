@@ -0,0 +1,28 @@
+package main.java.com.wallet.cluster;
+
+/**
+ * Maps account holders onto shards. The 16-bit hash space is split into
+ * contiguous ranges, one per shard.
+ */
+public class ShardRouter {
+    private static final int HASH_SPACE = 1 << 16;
+
+    private final int shardCount;
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1 || shardCount > HASH_SPACE) {
+            throw new IllegalArgumentException("Invalid shard count: " + shardCount);
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int shardFor(String accountHolder) {
+        int h = accountHolder.hashCode();
+        int slot = (h ^ (h >>> 16)) & (HASH_SPACE - 1);
+        return (int) ((long) slot * shardCount / HASH_SPACE);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+}
@@ -0,0 +1,14 @@
+package main.java.com.wallet.cluster;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers requests from the coordinator to individual shards.
+ */
+public interface ShardTransport extends AutoCloseable {
+
+    <T> CompletableFuture<T> send(int shardId, ShardRequest<T> request);
+
+    @Override
+    void close();
+}
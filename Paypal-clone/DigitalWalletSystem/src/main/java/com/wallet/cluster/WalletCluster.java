@@ -0,0 +1,298 @@
+package main.java.com.wallet.cluster;
+
+import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.model.Wallet;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinator for a set of wallet shards.
+ * - Same-shard transfers run on the owning shard with the same reserve,
+ *   settle and credit steps as the two legs of a cross-shard transfer
+ * - Cross-shard transfers use two-phase reserve/commit with timeouts
+ * - Decisions are logged so in-doubt transfers can be re-driven by recovery
+ *   once the coordinating call has returned
+ * - A committed transfer stays logged until both shards acknowledged the
+ *   commit and were told to forget its outcome
+ *
+ * Offer1 is not applied in the cluster: comparing balances held by two
+ * different shards would need a third round trip under both holds, and a
+ * reward that depended on shard placement would be arbitrary.
+ */
+public class WalletCluster implements AutoCloseable {
+    private static final BigDecimal MIN_TRANSFER = new BigDecimal("0.0001");
+
+    private final ShardRouter router;
+    private final List<WalletShard> shards;
+    private final ShardTransport transport;
+    private final long timeoutMillis;
+    private final AtomicLong txIds;
+    private final ConcurrentHashMap<Long, PendingTransfer> coordinatorLog;
+    private final ScheduledExecutorService recovery;
+
+    public WalletCluster(List<WalletShard> shards, ShardTransport transport, long timeoutMillis) {
+        this.router = new ShardRouter(shards.size());
+        this.shards = shards;
+        this.transport = transport;
+        this.timeoutMillis = timeoutMillis;
+        this.txIds = new AtomicLong();
+        this.coordinatorLog = new ConcurrentHashMap<>();
+        this.recovery = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-recovery");
+            t.setDaemon(true);
+            return t;
+        });
+        this.recovery.scheduleWithFixedDelay(this::runRecovery, timeoutMillis, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static WalletCluster inProcess(int shardCount, int workersPerShard, long timeoutMillis) {
+        List<WalletShard> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new WalletShard(i));
+        }
+        return new WalletCluster(shards, new InProcessTransport(shards, workersPerShard), timeoutMillis);
+    }
+
+    public void createWallet(String name, BigDecimal amount) {
+        await(transport.send(router.shardFor(name), shard -> {
+            shard.getWalletService().createWallet(name, amount);
+            return null;
+        }));
+    }
+
+    public Wallet getWallet(String name) {
+        return await(transport.send(router.shardFor(name), shard -> shard.getRepository().get(name)));
+    }
+
+    public void transferMoney(String fromUser, String toUser, BigDecimal amount) {
+        if (amount.compareTo(MIN_TRANSFER) < 0) {
+            throw new WalletException("Transfer amount too small");
+        }
+        if (fromUser.equals(toUser)) {
+            throw new WalletException("Cannot transfer to same account");
+        }
+
+        int fromShard = router.shardFor(fromUser);
+        int toShard = router.shardFor(toUser);
+        if (fromShard == toShard) {
+            await(transport.send(fromShard, shard -> {
+                shard.transfer(fromUser, toUser, amount);
+                return null;
+            }));
+            return;
+        }
+
+        long txId = txIds.incrementAndGet();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis * 2);
+        PendingTransfer pending = new PendingTransfer(fromShard, toShard);
+        coordinatorLog.put(txId, pending);
+        try {
+            coordinate(txId, pending, fromUser, toUser, amount, deadline);
+        } finally {
+            // From here on recovery may re-drive whatever is left undone
+            pending.coordinating = false;
+        }
+    }
+
+    private void coordinate(long txId, PendingTransfer pending, String fromUser, String toUser,
+                            BigDecimal amount, long deadline) {
+        int fromShard = pending.fromShard;
+        int toShard = pending.toShard;
+        // Phase 1: both participants vote in parallel
+        CompletableFuture<Boolean> debitVote = transport.send(fromShard,
+                shard -> shard.prepareDebit(txId, fromUser, toUser, amount, deadline));
+        CompletableFuture<Boolean> creditVote = transport.send(toShard,
+                shard -> shard.prepareCredit(txId, toUser, fromUser, amount, deadline));
+
+        String failure = null;
+        try {
+            CompletableFuture.allOf(debitVote, creditVote).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (!debitVote.join() || !creditVote.join()) {
+                failure = "Transfer already decided";
+            }
+        } catch (ExecutionException e) {
+            failure = e.getCause().getMessage();
+        } catch (TimeoutException e) {
+            failure = "Transfer prepare timed out";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "Transfer interrupted";
+        }
+
+        if (failure == null) {
+            pending.decision = Decision.COMMIT;
+            // The debit side may have expired its hold, so it is committed first
+            Boolean debited = phaseTwo(fromShard, shard -> shard.commit(txId));
+            if (debited == null) {
+                throw new WalletException("Transfer " + txId + " in doubt, left to recovery");
+            }
+            if (debited) {
+                // Once the debit is settled the transfer has happened; a lost
+                // credit acknowledgement is finished by recovery
+                if (phaseTwo(toShard, shard -> shard.commit(txId)) != null) {
+                    pending.acknowledged = true;
+                    forget(txId, pending);
+                }
+                return;
+            }
+            failure = "Transfer reservation expired";
+        }
+
+        pending.decision = Decision.ABORT;
+        if (phaseTwo(fromShard, shard -> shard.abort(txId)) != null
+                && phaseTwo(toShard, shard -> shard.abort(txId)) != null) {
+            coordinatorLog.remove(txId);
+        }
+        throw new WalletException(failure);
+    }
+
+    /**
+     * Re-sends the logged decision for every transfer that has not been fully
+     * acknowledged. Undecided transfers older than the timeout are aborted.
+     * Transfers whose coordinating call is still running are left to it.
+     */
+    public int recoverInDoubtTransfers() {
+        int resolved = 0;
+        long now = System.nanoTime();
+        for (Map.Entry<Long, PendingTransfer> e : coordinatorLog.entrySet()) {
+            long txId = e.getKey();
+            PendingTransfer pending = e.getValue();
+            if (pending.coordinating) {
+                continue;
+            }
+            if (pending.decision == null) {
+                if (now - pending.startedAtNanos < TimeUnit.MILLISECONDS.toNanos(timeoutMillis * 2)) {
+                    continue;
+                }
+                pending.decision = Decision.ABORT;
+            }
+
+            if (pending.decision == Decision.COMMIT && !pending.acknowledged) {
+                Boolean debited = phaseTwo(pending.fromShard, shard -> shard.commit(txId));
+                if (Boolean.FALSE.equals(debited)) {
+                    // Commit outcomes are kept until forgotten, so the hold really expired
+                    pending.decision = Decision.ABORT;
+                } else if (debited != null && phaseTwo(pending.toShard, shard -> shard.commit(txId)) != null) {
+                    pending.acknowledged = true;
+                }
+            }
+
+            boolean done;
+            if (pending.decision == Decision.COMMIT) {
+                done = pending.acknowledged && forget(txId, pending);
+            } else {
+                done = phaseTwo(pending.fromShard, shard -> shard.abort(txId)) != null
+                        && phaseTwo(pending.toShard, shard -> shard.abort(txId)) != null;
+                if (done) {
+                    coordinatorLog.remove(txId);
+                }
+            }
+            if (done) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    public int getInDoubtCount() {
+        return coordinatorLog.size();
+    }
+
+    public List<WalletShard> getShards() {
+        return shards;
+    }
+
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    @Override
+    public void close() {
+        recovery.shutdownNow();
+        transport.close();
+    }
+
+    private void runRecovery() {
+        try {
+            recoverInDoubtTransfers();
+            long now = System.nanoTime();
+            for (int i = 0; i < shards.size(); i++) {
+                transport.send(i, shard -> shard.expireReservations(now));
+            }
+        } catch (Exception e) {
+            System.out.println("Cluster recovery failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tells both shards to drop the commit outcome, then unlogs the transfer
+     *
+     * @return whether both shards answered
+     */
+    private boolean forget(long txId, PendingTransfer pending) {
+        if (phaseTwo(pending.fromShard, shard -> shard.forget(txId)) == null
+                || phaseTwo(pending.toShard, shard -> shard.forget(txId)) == null) {
+            return false;
+        }
+        coordinatorLog.remove(txId);
+        return true;
+    }
+
+    /**
+     * @return the participant's answer, or null if it did not answer in time
+     */
+    private Boolean phaseTwo(int shardId, ShardRequest<Boolean> request) {
+        try {
+            return transport.send(shardId, request).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new WalletException(e.getCause().getMessage());
+        }
+    }
+
+    private enum Decision {
+        COMMIT,
+        ABORT
+    }
+
+    private static final class PendingTransfer {
+        final int fromShard;
+        final int toShard;
+        final long startedAtNanos;
+        volatile Decision decision;
+        // Both shards answered the commit; only the forget calls remain
+        volatile boolean acknowledged;
+        volatile boolean coordinating = true;
+
+        PendingTransfer(int fromShard, int toShard) {
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+            this.startedAtNanos = System.nanoTime();
+        }
+    }
+}
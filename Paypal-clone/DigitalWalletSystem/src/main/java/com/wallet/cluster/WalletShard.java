@@ -0,0 +1,214 @@
+package main.java.com.wallet.cluster;
+
+import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.repository.WalletRepository;
+import main.java.com.wallet.service.WalletService;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One partition of the wallet engine. Owns the wallets whose holders hash into
+ * its range and acts as a participant in cross-shard two-phase transfers.
+ * Phase two calls are idempotent so the coordinator can safely retry them:
+ * the first call, or expiry, to record an outcome owns the reservation, and
+ * every later call just reports that outcome.
+ * A commit outcome is kept until the coordinator calls {@link #forget}, so a
+ * retried commit can never be mistaken for one that found nothing to commit.
+ * Abort outcomes are dropped after a while: a forgotten abort still reads as
+ * an abort.
+ */
+public class WalletShard {
+    private static final long OUTCOME_RETENTION_NANOS = 60_000_000_000L;
+
+    private final int shardId;
+    private final WalletRepository repository;
+    private final WalletService walletService;
+    private final ConcurrentHashMap<Long, Reservation> reservations;
+    private final ConcurrentHashMap<Long, Outcome> outcomes;
+
+    public WalletShard(int shardId) {
+        this.shardId = shardId;
+        this.repository = new WalletRepository();
+        this.walletService = new WalletService(repository);
+        this.reservations = new ConcurrentHashMap<>();
+        this.outcomes = new ConcurrentHashMap<>();
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public WalletRepository getRepository() {
+        return repository;
+    }
+
+    public WalletService getWalletService() {
+        return walletService;
+    }
+
+    /**
+     * Moves money between two wallets of this shard with the same steps as
+     * the two legs of a cross-shard transfer, so both paths do the same work.
+     */
+    public void transfer(String fromUser, String toUser, BigDecimal amount) {
+        // Checked before any money moves, so the credit cannot fail after the debit settled
+        requireWallet(toUser);
+        walletService.reserveFunds(fromUser, amount);
+        walletService.settleReservation(fromUser, amount, toUser);
+        walletService.credit(toUser, amount, fromUser);
+    }
+
+    /**
+     * Phase one on the sending side: holds the funds until the coordinator's
+     * decision arrives or the deadline passes.
+     *
+     * @return false if the transfer was already decided, e.g. aborted after this vote timed out
+     */
+    public boolean prepareDebit(long txId, String holder, String counterParty, BigDecimal amount, long deadlineNanos) {
+        if (outcomes.containsKey(txId)) {
+            return false;
+        }
+        walletService.reserveFunds(holder, amount);
+        Reservation r = new Reservation(true, holder, counterParty, amount, deadlineNanos);
+        reservations.put(txId, r);
+        // A decision recorded meanwhile found nothing to release
+        if (outcomes.containsKey(txId) && reservations.remove(txId, r)) {
+            walletService.releaseReservation(holder, amount);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Phase one on the receiving side: only checks that the wallet exists.
+     * Nothing is held, so credit reservations never expire on their own;
+     * a vote arriving after the decision is refused so none is left behind.
+     */
+    public boolean prepareCredit(long txId, String holder, String counterParty, BigDecimal amount, long deadlineNanos) {
+        requireWallet(holder);
+        if (outcomes.containsKey(txId)) {
+            return false;
+        }
+        Reservation r = new Reservation(false, holder, counterParty, amount, deadlineNanos);
+        reservations.put(txId, r);
+        if (outcomes.containsKey(txId) && reservations.remove(txId, r)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the transfer was aborted here, for instance because
+     * the reservation timed out
+     */
+    public boolean commit(long txId) {
+        Outcome decided = outcomes.putIfAbsent(txId, new Outcome(true, System.nanoTime()));
+        if (decided != null) {
+            return decided.committed;
+        }
+        Reservation r = reservations.remove(txId);
+        if (r == null) {
+            // Never prepared here, so there is nothing to commit
+            outcomes.put(txId, new Outcome(false, System.nanoTime()));
+            return false;
+        }
+        if (r.debit) {
+            walletService.settleReservation(r.holder, r.amount, r.counterParty);
+        } else {
+            walletService.credit(r.holder, r.amount, r.counterParty);
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the transfer was already committed here
+     */
+    public boolean abort(long txId) {
+        Outcome decided = outcomes.putIfAbsent(txId, new Outcome(false, System.nanoTime()));
+        if (decided != null) {
+            return !decided.committed;
+        }
+        Reservation r = reservations.remove(txId);
+        if (r != null && r.debit) {
+            walletService.releaseReservation(r.holder, r.amount);
+        }
+        return true;
+    }
+
+    /**
+     * Drops the outcome of a transfer both sides have acknowledged
+     */
+    public boolean forget(long txId) {
+        outcomes.remove(txId);
+        return true;
+    }
+
+    /**
+     * Presumed abort: releases debit holds whose deadline passed without a
+     * decision and forgets old abort outcomes.
+     */
+    public int expireReservations(long nowNanos) {
+        int expired = 0;
+        for (Map.Entry<Long, Reservation> e : reservations.entrySet()) {
+            Reservation r = e.getValue();
+            if (r.debit && nowNanos - r.deadlineNanos > 0
+                    && outcomes.putIfAbsent(e.getKey(), new Outcome(false, nowNanos)) == null
+                    && reservations.remove(e.getKey(), r)) {
+                walletService.releaseReservation(r.holder, r.amount);
+                expired++;
+            }
+        }
+        Iterator<Outcome> it = outcomes.values().iterator();
+        while (it.hasNext()) {
+            Outcome outcome = it.next();
+            if (!outcome.committed && nowNanos - outcome.decidedAtNanos > OUTCOME_RETENTION_NANOS) {
+                it.remove();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @throws WalletException if the wallet is not on this shard
+     */
+    private void requireWallet(String accountHolder) {
+        repository.get(accountHolder);
+    }
+
+    public int getPendingReservationCount() {
+        return reservations.size();
+    }
+
+    public int getOutcomeCount() {
+        return outcomes.size();
+    }
+
+    private static final class Reservation {
+        final boolean debit;
+        final String holder;
+        final String counterParty;
+        final BigDecimal amount;
+        final long deadlineNanos;
+
+        Reservation(boolean debit, String holder, String counterParty, BigDecimal amount, long deadlineNanos) {
+            this.debit = debit;
+            this.holder = holder;
+            this.counterParty = counterParty;
+            this.amount = amount;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private static final class Outcome {
+        final boolean committed;
+        final long decidedAtNanos;
+
+        Outcome(boolean committed, long decidedAtNanos) {
+            this.committed = committed;
+            this.decidedAtNanos = decidedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package main.java.com.wallet.history;
+
+import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.model.Transaction;
+import main.java.com.wallet.model.TransactionType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tiered storage for wallet statements.
+ * - Recent entries stay on heap inside each {@link TransactionHistory}
+ * - A wallet holding more than walletBudget entries spills its oldest half
+ * - Past globalBudget resident entries, least recently used wallets spill
+ * - Spilled entries are appended to one segment file, mapped once and
+ *   remapped only when it outgrows the mapping; reads slice the mapping
+ * - Segments replaced by compaction are counted as dead bytes; once they
+ *   outweigh the live ones the live segments are copied into a fresh file
+ *   and the old one is deleted
+ *
+ * A budget of 0 means unlimited. The segment file only lives as long as the
+ * process, like the wallets themselves.
+ */
+public class HistoryStore implements AutoCloseable {
+    private static final HistoryStore IN_MEMORY = new HistoryStore(null, 0, 0);
+    private static final long MIN_MAPPING = 1 << 20;
+    // Below this a rewrite would cost more than the disk it gives back
+    private static final long MIN_REWRITE_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final long globalBudget;
+    private final int walletBudget;
+    private final AtomicLong residentEntries;
+    // Access-ordered: eldest entry is the least recently used wallet
+    private final LinkedHashMap<TransactionHistory, Boolean> lru;
+    // Guarded by this
+    private final Set<Segment> live;
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long fileSize;
+    private long deadBytes;
+    private int generation;
+
+    private HistoryStore(Path directory, long globalBudget, int walletBudget) {
+        this.directory = directory;
+        this.globalBudget = globalBudget;
+        this.walletBudget = walletBudget;
+        this.residentEntries = new AtomicLong();
+        this.lru = new LinkedHashMap<>(16, 0.75f, true);
+        this.live = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Keeps every entry on heap; the behaviour wallets had before tiering
+     */
+    public static HistoryStore inMemory() {
+        return IN_MEMORY;
+    }
+
+    public static HistoryStore onDisk(Path directory, long globalBudget, int walletBudget) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new WalletException("Cannot open history store in " + directory + ": " + e.getMessage());
+        }
+        HistoryStore store = new HistoryStore(directory, globalBudget, walletBudget);
+        synchronized (store) {
+            store.openFile(MIN_MAPPING);
+        }
+        return store;
+    }
+
+    public TransactionHistory newHistory() {
+        return new TransactionHistory(this);
+    }
+
+    public long getResidentEntries() {
+        return residentEntries.get();
+    }
+
+    public synchronized long getFileSize() {
+        return fileSize;
+    }
+
+    public synchronized long getDeadBytes() {
+        return deadBytes;
+    }
+
+    void afterAppend(TransactionHistory history, int residentCount) {
+        if (directory == null) return;
+
+        long resident = residentEntries.incrementAndGet();
+        touch(history);
+
+        if (walletBudget > 0 && residentCount > walletBudget) {
+            residentEntries.addAndGet(-history.spill(walletBudget / 2));
+        }
+
+        while (globalBudget > 0 && resident > globalBudget) {
+            TransactionHistory victim = eldest();
+            if (victim == null) break;
+            residentEntries.addAndGet(-victim.spill(0));
+            resident = residentEntries.get();
+        }
+    }
+
+    void touch(TransactionHistory history) {
+        if (directory == null) return;
+        synchronized (lru) {
+            lru.put(history, Boolean.TRUE);
+        }
+    }
+
+    private TransactionHistory eldest() {
+        synchronized (lru) {
+            Iterator<TransactionHistory> it = lru.keySet().iterator();
+            if (!it.hasNext()) return null;
+            TransactionHistory victim = it.next();
+            it.remove();
+            return victim;
+        }
+    }
+
+    Segment write(List<Transaction> entries) {
+        byte[] bytes = encode(entries);
+        synchronized (this) {
+            if (fileSize + bytes.length > mapped.capacity()) {
+                remap(fileSize + bytes.length);
+            }
+            mapped.put((int) fileSize, bytes);
+            Segment segment = new Segment(fileSize, bytes.length, entries.size());
+            fileSize += bytes.length;
+            live.add(segment);
+            return segment;
+        }
+    }
+
+    List<Transaction> read(Segment segment) {
+        ByteBuffer slice;
+        synchronized (this) {
+            slice = mapped.slice((int) segment.offset, segment.length);
+        }
+        // A slice keeps its mapping alive, so a rewrite or remap cannot pull the bytes away
+        return decode(slice, segment.count);
+    }
+
+    /**
+     * Marks a segment replaced by compaction; its bytes are reclaimed by the
+     * next rewrite
+     */
+    synchronized void free(Segment segment) {
+        if (!live.remove(segment)) return;
+        deadBytes += segment.length;
+        if (deadBytes >= MIN_REWRITE_BYTES && deadBytes > fileSize - deadBytes) {
+            rewrite();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Called with the lock held
+    private void openFile(long capacity) {
+        Path next = directory.resolve("wallet-history-" + generation++ + ".seg");
+        try {
+            FileChannel opened = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            file = next;
+            channel = opened;
+            mapped = opened.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new WalletException("Cannot open history store in " + directory + ": " + e.getMessage());
+        }
+    }
+
+    // Called with the lock held; mapping a larger region extends the file
+    private void remap(long needed) {
+        if (needed > Integer.MAX_VALUE) {
+            throw new WalletException("History store is full");
+        }
+        long capacity = Math.min(Math.max(needed, (long) mapped.capacity() * 2), Integer.MAX_VALUE);
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new WalletException("Failed to spill history: " + e.getMessage());
+        }
+    }
+
+    // Called with the lock held; copies live segments into a fresh file
+    private void rewrite() {
+        Path oldFile = file;
+        FileChannel oldChannel = channel;
+        MappedByteBuffer oldMapped = mapped;
+        long liveBytes = fileSize - deadBytes;
+        openFile(Math.max(MIN_MAPPING, liveBytes * 2));
+
+        long offset = 0;
+        for (Segment segment : live) {
+            mapped.put((int) offset, oldMapped, (int) segment.offset, segment.length);
+            segment.offset = offset;
+            offset += segment.length;
+        }
+        fileSize = offset;
+        deadBytes = 0;
+        try {
+            oldChannel.close();
+            Files.deleteIfExists(oldFile);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static byte[] encode(List<Transaction> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entries.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Transaction t : entries) {
+                byte[] party = t.getCounterPartyId().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(party.length);
+                out.write(party);
+                out.writeByte(t.getType().ordinal());
+                byte[] unscaled = t.getAmount().unscaledValue().toByteArray();
+                out.writeShort(unscaled.length);
+                out.write(unscaled);
+                out.writeInt(t.getAmount().scale());
+                out.writeLong(t.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(t.getTimestamp().getNano());
+            }
+        } catch (IOException e) {
+            throw new WalletException("Failed to encode history: " + e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Transaction> decode(ByteBuffer in, int count) {
+        TransactionType[] types = TransactionType.values();
+        List<Transaction> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] party = new byte[in.getShort() & 0xFFFF];
+            in.get(party);
+            TransactionType type = types[in.get()];
+            byte[] unscaled = new byte[in.getShort() & 0xFFFF];
+            in.get(unscaled);
+            BigDecimal amount = new BigDecimal(new BigInteger(unscaled), in.getInt());
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            entries.add(new Transaction(new String(party, StandardCharsets.UTF_8), type, amount, timestamp));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    static final class Segment {
+        // Guarded by the store; moves when the store rewrites its file
+        long offset;
+        final int length;
+        final int count;
+
+        Segment(long offset, int length, int count) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package main.java.com.wallet.history;
+
+import main.java.com.wallet.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statement entries of one wallet.
+ * The most recent entries stay on heap; older ones live in segments of the
+ * {@link HistoryStore} file and are read back transparently by snapshot().
+ */
+public class TransactionHistory {
+    private final HistoryStore store;
+    // Guarded by this
+    private final ArrayList<Transaction> resident;
+    private final ArrayList<HistoryStore.Segment> spilled;
+    private int spilledCount;
+
+    TransactionHistory(HistoryStore store) {
+        this.store = store;
+        this.resident = new ArrayList<>();
+        this.spilled = new ArrayList<>();
+    }
+
+    public void append(Transaction transaction) {
+        int residentCount;
+        synchronized (this) {
+            resident.add(transaction);
+            residentCount = resident.size();
+        }
+        // Eviction may lock other histories, so it runs outside this monitor
+        store.afterAppend(this, residentCount);
+    }
+
+    public List<Transaction> snapshot() {
+        store.touch(this);
+        synchronized (this) {
+            List<Transaction> all = new ArrayList<>(spilledCount + resident.size());
+            for (HistoryStore.Segment segment : spilled) {
+                all.addAll(store.read(segment));
+            }
+            all.addAll(resident);
+            return all;
+        }
+    }
+
+    public synchronized int size() {
+        return spilledCount + resident.size();
+    }
+
+    public synchronized int residentSize() {
+        return resident.size();
+    }
+
+    /**
+     * Moves the oldest resident entries to disk, keeping the newest keepRecent.
+     *
+     * @return number of entries spilled
+     */
+    synchronized int spill(int keepRecent) {
+        int count = resident.size() - keepRecent;
+        if (count <= 0) return 0;
+
+        List<Transaction> oldest = resident.subList(0, count);
+        spilled.add(store.write(oldest));
+        oldest.clear();
+        spilledCount += count;
+        compact();
+        return count;
+    }
+
+    /**
+     * Size-tiered compaction: merges the newest segment into its predecessor
+     * while it is at least as large, keeping O(log n) segments per wallet
+     * and O(n log n) bytes written overall.
+     */
+    private void compact() {
+        while (spilled.size() > 1) {
+            HistoryStore.Segment newest = spilled.get(spilled.size() - 1);
+            HistoryStore.Segment previous = spilled.get(spilled.size() - 2);
+            if (newest.count < previous.count) return;
+
+            List<Transaction> merged = new ArrayList<>(previous.count + newest.count);
+            merged.addAll(store.read(previous));
+            merged.addAll(store.read(newest));
+            spilled.remove(spilled.size() - 1);
+            spilled.set(spilled.size() - 1, store.write(merged));
+            store.free(previous);
+            store.free(newest);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package main.java.com.wallet.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Activity of one wallet during one hour or one day
+ */
+public class ActivityBucket {
+    private final LocalDateTime periodStart;
+    private final long count;
+    private final BigDecimal sumIn;
+    private final BigDecimal sumOut;
+
+    public ActivityBucket(LocalDateTime periodStart, long count, BigDecimal sumIn, BigDecimal sumOut) {
+        this.periodStart = periodStart;
+        this.count = count;
+        this.sumIn = sumIn;
+        this.sumOut = sumOut;
+    }
+
+    public LocalDateTime getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getSumIn() {
+        return sumIn;
+    }
+
+    public BigDecimal getSumOut() {
+        return sumOut;
+    }
+
+    @Override
+    public String toString() {
+        return periodStart + " count " + count
+                + " in " + sumIn.stripTrailingZeros().toPlainString()
+                + " out " + sumOut.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,124 @@
+package main.java.com.wallet.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Rolling per-wallet activity in hourly and daily buckets.
+ * Each granularity is a fixed-size ring indexed by period number, so both
+ * updates and lookups cost the same whatever the length of the history.
+ * Entries older than the ring window are not counted.
+ */
+public class ActivityRollup {
+    public static final int HOURS_KEPT = 48;
+    public static final int DAYS_KEPT = 35;
+
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private final Ring hourly;
+    private final Ring daily;
+
+    public ActivityRollup() {
+        this.hourly = new Ring(HOURS_KEPT, SECONDS_PER_HOUR);
+        this.daily = new Ring(DAYS_KEPT, SECONDS_PER_DAY);
+    }
+
+    public synchronized void record(Transaction t) {
+        long epochSecond = t.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        boolean credit = t.getType() == TransactionType.CREDIT;
+        hourly.add(epochSecond / SECONDS_PER_HOUR, credit, t.getAmount());
+        daily.add(epochSecond / SECONDS_PER_DAY, credit, t.getAmount());
+    }
+
+    public synchronized ActivityBucket getHour(LocalDateTime at) {
+        return hourly.get(at.toEpochSecond(ZoneOffset.UTC) / SECONDS_PER_HOUR);
+    }
+
+    public synchronized ActivityBucket getDay(LocalDate day) {
+        return daily.get(day.toEpochDay());
+    }
+
+    /**
+     * Totals over the given number of hours ending with the hour of now
+     */
+    public synchronized ActivityBucket getLastHours(int hours, LocalDateTime now) {
+        return hourly.sum(now.toEpochSecond(ZoneOffset.UTC) / SECONDS_PER_HOUR, hours);
+    }
+
+    /**
+     * Totals over the given number of days ending with the day of now
+     */
+    public synchronized ActivityBucket getLastDays(int days, LocalDateTime now) {
+        return daily.sum(now.toLocalDate().toEpochDay(), days);
+    }
+
+    private static final class Ring {
+        private final long secondsPerPeriod;
+        private final long[] periods;
+        private final long[] counts;
+        private final BigDecimal[] sumIn;
+        private final BigDecimal[] sumOut;
+        private long latest;
+
+        Ring(int size, long secondsPerPeriod) {
+            this.secondsPerPeriod = secondsPerPeriod;
+            this.periods = new long[size];
+            this.counts = new long[size];
+            this.sumIn = new BigDecimal[size];
+            this.sumOut = new BigDecimal[size];
+            Arrays.fill(periods, -1);
+            Arrays.fill(sumIn, BigDecimal.ZERO);
+            Arrays.fill(sumOut, BigDecimal.ZERO);
+            this.latest = -1;
+        }
+
+        void add(long period, boolean credit, BigDecimal amount) {
+            if (period <= latest - periods.length) return;
+            latest = Math.max(latest, period);
+
+            int slot = (int) Math.floorMod(period, (long) periods.length);
+            if (periods[slot] != period) {
+                periods[slot] = period;
+                counts[slot] = 0;
+                sumIn[slot] = BigDecimal.ZERO;
+                sumOut[slot] = BigDecimal.ZERO;
+            }
+            counts[slot]++;
+            if (credit) {
+                sumIn[slot] = sumIn[slot].add(amount);
+            } else {
+                sumOut[slot] = sumOut[slot].add(amount);
+            }
+        }
+
+        ActivityBucket get(long period) {
+            int slot = (int) Math.floorMod(period, (long) periods.length);
+            LocalDateTime start = LocalDateTime.ofEpochSecond(period * secondsPerPeriod, 0, ZoneOffset.UTC);
+            if (periods[slot] != period) {
+                return new ActivityBucket(start, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+            }
+            return new ActivityBucket(start, counts[slot], sumIn[slot], sumOut[slot]);
+        }
+
+        ActivityBucket sum(long lastPeriod, int span) {
+            int n = Math.min(span, periods.length);
+            long count = 0;
+            BigDecimal in = BigDecimal.ZERO;
+            BigDecimal out = BigDecimal.ZERO;
+            for (long p = lastPeriod - n + 1; p <= lastPeriod; p++) {
+                int slot = (int) Math.floorMod(p, (long) periods.length);
+                if (periods[slot] == p) {
+                    count += counts[slot];
+                    in = in.add(sumIn[slot]);
+                    out = out.add(sumOut[slot]);
+                }
+            }
+            LocalDateTime start = LocalDateTime.ofEpochSecond((lastPeriod - n + 1) * secondsPerPeriod, 0, ZoneOffset.UTC);
+            return new ActivityBucket(start, count, in, out);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package main.java.com.wallet.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Notified after every change to a wallet's available balance.
+ * Called while the wallet's monitor is held, so implementations must be quick
+ * and must not call back into the wallet.
+ */
+public interface BalanceListener {
+    void balanceChanged(Wallet wallet, BigDecimal oldBalance, BigDecimal newBalance);
+}
@@ -0,0 +1,45 @@
+package main.java.com.wallet.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+/**
+ * A bulk credit applied to every qualifying wallet.
+ * The credit function sees the wallet under its write lock and returns the
+ * amount to post, or null when the wallet does not qualify.
+ */
+public class Campaign {
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private final String name;
+    private final Function<Wallet, BigDecimal> creditFunction;
+
+    public Campaign(String name, Function<Wallet, BigDecimal> creditFunction) {
+        this.name = name;
+        this.creditFunction = creditFunction;
+    }
+
+    /**
+     * Fixed credit for wallets with at least minTransactions user transactions
+     */
+    public static Campaign cashback(String name, BigDecimal amount, int minTransactions) {
+        return new Campaign(name, w -> w.getUserTransactionCount() >= minTransactions ? amount : null);
+    }
+
+    /**
+     * Credits ratePercent of the balance to wallets holding at least minBalance
+     */
+    public static Campaign interest(String name, BigDecimal ratePercent, BigDecimal minBalance) {
+        return new Campaign(name, w -> w.getBalance().compareTo(minBalance) < 0 ? null
+                : w.getBalance().multiply(ratePercent).divide(HUNDRED, 4, RoundingMode.HALF_EVEN));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal creditFor(Wallet wallet) {
+        return creditFunction.apply(wallet);
+    }
+}
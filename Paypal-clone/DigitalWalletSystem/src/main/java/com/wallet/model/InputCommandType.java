@@ -6,9 +6,13 @@ import java.util.Map;
 public enum InputCommandType {
     CREATE_WALLET("CreateWallet"),
     TRANSFER_MONEY("TransferMoney"),
+    SPLIT_TRANSFER("SplitTransfer"),
     STATEMENT("Statement"),
     OVERVIEW("Overview"),
+    BALANCES("Balances"),
+    ACTIVITY("Activity"),
     OFFER2("Offer2"),
+    CAMPAIGN("Campaign"),
     FIXED_DEPOSIT("FixedDeposit"),
     EXIT("Exit");
 
@@ -10,16 +10,32 @@ public class Transaction {
     private final LocalDateTime timestamp;
 
     public Transaction(String counterPartyId, TransactionType type, BigDecimal amount) {
+        this(counterPartyId, type, amount, LocalDateTime.now());
+    }
+
+    public Transaction(String counterPartyId, TransactionType type, BigDecimal amount, LocalDateTime timestamp) {
         this.counterPartyId = counterPartyId;
         this.type = type;
         this.amount = amount;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
     }
 
     public String getCounterPartyId() {
         return counterPartyId;
     }
 
+    public TransactionType getType() {
+        return type;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
     @Override
     public String toString() {
         return counterPartyId + " " + type.toString().toLowerCase() + " " + amount.stripTrailingZeros().toPlainString();
@@ -0,0 +1,30 @@
+package main.java.com.wallet.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One movement of money inside a multi-leg transfer
+ */
+public class TransferLeg {
+    private final String fromUser;
+    private final String toUser;
+    private final BigDecimal amount;
+
+    public TransferLeg(String fromUser, String toUser, BigDecimal amount) {
+        this.fromUser = fromUser;
+        this.toUser = toUser;
+        this.amount = amount;
+    }
+
+    public String getFromUser() {
+        return fromUser;
+    }
+
+    public String getToUser() {
+        return toUser;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
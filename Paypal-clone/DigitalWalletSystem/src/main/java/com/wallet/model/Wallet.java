@@ -2,12 +2,12 @@ package main.java.com.wallet.model;
 
 import main.java.com.wallet.exception.InsufficientBalanceException;
 import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.history.HistoryStore;
+import main.java.com.wallet.history.TransactionHistory;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -17,15 +17,25 @@ public class Wallet {
     private final String accountHolder;
     private final AtomicReference<BigDecimal> balance;
     private final LocalDateTime createdAt;
-    private final CopyOnWriteArrayList<Transaction> transactions;
+    private final TransactionHistory transactions;
     private final AtomicReference<FixedDeposit> fixedDeposit;
+    private BigDecimal reserved;
+    private volatile int userTransactionCount;
+    private final ActivityRollup activity;
+    private volatile BalanceListener balanceListener;
 
     public Wallet(String accountHolder, BigDecimal openingBalance) {
+        this(accountHolder, openingBalance, HistoryStore.inMemory());
+    }
+
+    public Wallet(String accountHolder, BigDecimal openingBalance, HistoryStore historyStore) {
         this.accountHolder = accountHolder;
         this.balance = new AtomicReference<>(openingBalance);
         this.createdAt = LocalDateTime.now();
-        this.transactions = new CopyOnWriteArrayList<>();
+        this.transactions = historyStore.newHistory();
         this.fixedDeposit = new AtomicReference<>(null);
+        this.reserved = BigDecimal.ZERO;
+        this.activity = new ActivityRollup();
     }
 
     public String getAccountHolder() {
@@ -40,30 +50,36 @@ public class Wallet {
         return createdAt;
     }
 
+    /**
+     * Full statement, including entries that were spilled to disk
+     */
     public List<Transaction> getTransactions() {
-        return new ArrayList<>(transactions);
+        return transactions.snapshot();
+    }
+
+    public synchronized BigDecimal getReserved() {
+        return reserved;
     }
 
     public FixedDeposit getFixedDeposit() {
         return fixedDeposit.get();
     }
 
+    public ActivityRollup getActivity() {
+        return activity;
+    }
+
     public int getUserTransactionCount() {
-        int count = 0;
-        for (Transaction t : transactions) {
-            if (!t.getCounterPartyId().equals("Offer1") &&
-                    !t.getCounterPartyId().equals("Offer2") &&
-                    !t.getCounterPartyId().equals("FD_Interest")) {
-                count++;
-            }
-        }
-        return count;
+        return userTransactionCount;
+    }
+
+    public void setBalanceListener(BalanceListener balanceListener) {
+        this.balanceListener = balanceListener;
     }
 
     public synchronized void credit(BigDecimal amount, String from) {
-        BigDecimal newBalance = balance.get().add(amount);
-        balance.set(newBalance);
-        transactions.add(new Transaction(from, TransactionType.CREDIT, amount));
+        setBalance(balance.get().add(amount));
+        record(new Transaction(from, TransactionType.CREDIT, amount));
         checkFixedDepositStatus();
     }
 
@@ -72,12 +88,35 @@ public class Wallet {
         if (currentBalance.compareTo(amount) < 0) {
             throw new InsufficientBalanceException(accountHolder);
         }
-        BigDecimal newBalance = currentBalance.subtract(amount);
-        balance.set(newBalance);
-        transactions.add(new Transaction(to, TransactionType.DEBIT, amount));
+        setBalance(currentBalance.subtract(amount));
+        record(new Transaction(to, TransactionType.DEBIT, amount));
+        checkFixedDepositStatus();
+    }
+
+    /**
+     * Holds funds for a pending transfer. The held amount leaves the available
+     * balance immediately but is only written to the statement once settled.
+     */
+    public synchronized void reserve(BigDecimal amount) {
+        BigDecimal currentBalance = balance.get();
+        if (currentBalance.compareTo(amount) < 0) {
+            throw new InsufficientBalanceException(accountHolder);
+        }
+        setBalance(currentBalance.subtract(amount));
+        reserved = reserved.add(amount);
+    }
+
+    public synchronized void settleReservation(BigDecimal amount, String to) {
+        reserved = reserved.subtract(amount);
+        record(new Transaction(to, TransactionType.DEBIT, amount));
         checkFixedDepositStatus();
     }
 
+    public synchronized void releaseReservation(BigDecimal amount) {
+        reserved = reserved.subtract(amount);
+        setBalance(balance.get().add(amount));
+    }
+
     public synchronized void createFixedDeposit(BigDecimal amount) {
         BigDecimal currentBalance = balance.get();
         if (currentBalance.compareTo(amount) < 0) {
@@ -86,6 +125,24 @@ public class Wallet {
         fixedDeposit.set(new FixedDeposit(amount));
     }
 
+    private void setBalance(BigDecimal newBalance) {
+        BigDecimal oldBalance = balance.getAndSet(newBalance);
+        BalanceListener listener = balanceListener;
+        if (listener != null) {
+            listener.balanceChanged(this, oldBalance, newBalance);
+        }
+    }
+
+    private void record(Transaction t) {
+        transactions.append(t);
+        activity.record(t);
+        if (!t.getCounterPartyId().equals("Offer1") &&
+                !t.getCounterPartyId().equals("Offer2") &&
+                !t.getCounterPartyId().equals("FD_Interest")) {
+            userTransactionCount++;
+        }
+    }
+
     private void checkFixedDepositStatus() {
         FixedDeposit fd = fixedDeposit.get();
         if (fd == null || !fd.isActive()) return;
@@ -97,9 +154,8 @@ public class Wallet {
 
         boolean matured = fd.decrementAndCheckMaturity();
         if (matured) {
-            BigDecimal newBalance = balance.get().add(new BigDecimal("10"));
-            balance.set(newBalance);
-            transactions.add(new Transaction("FD_Interest", TransactionType.CREDIT, new BigDecimal("10")));
+            setBalance(balance.get().add(new BigDecimal("10")));
+            record(new Transaction("FD_Interest", TransactionType.CREDIT, new BigDecimal("10")));
             fd.dissolve();
         }
     }
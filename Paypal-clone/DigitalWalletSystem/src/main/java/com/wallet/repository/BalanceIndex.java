@@ -0,0 +1,132 @@
+package main.java.com.wallet.repository;
+
+import main.java.com.wallet.model.BalanceListener;
+import main.java.com.wallet.model.Wallet;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Secondary index of wallets ordered by (balance, account holder).
+ * - A concurrent skip list set; a balance change removes the old entry and
+ *   inserts the new one without any lock of its own, so wallets only ever
+ *   contend on their own monitors
+ * - Changes to one wallet arrive in order, since the wallet calls its
+ *   listener under its monitor
+ * - Queries walk the set: top(n) and range() cost what they return, while
+ *   count() and percentile() walk up to the rank they need. Under concurrent
+ *   changes they see each wallet at its old or new balance; they are exact
+ *   once changes stop
+ * - Kept current as the {@link BalanceListener} of every saved wallet
+ */
+public class BalanceIndex implements BalanceListener {
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparing((Entry e) -> e.balance).thenComparing(e -> e.accountHolder);
+
+    private final ConcurrentSkipListSet<Entry> entries;
+    // Wallets are never removed, and a move keeps the count
+    private final AtomicInteger size;
+
+    public BalanceIndex() {
+        this.entries = new ConcurrentSkipListSet<>(ORDER);
+        this.size = new AtomicInteger();
+    }
+
+    public void add(String accountHolder, BigDecimal balance) {
+        if (entries.add(new Entry(accountHolder, balance))) {
+            size.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void balanceChanged(Wallet wallet, BigDecimal oldBalance, BigDecimal newBalance) {
+        if (oldBalance.compareTo(newBalance) == 0) return;
+        entries.remove(new Entry(wallet.getAccountHolder(), oldBalance));
+        entries.add(new Entry(wallet.getAccountHolder(), newBalance));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Account holders from richest to poorest
+     */
+    public List<String> descending() {
+        return top(Integer.MAX_VALUE);
+    }
+
+    /**
+     * The n richest account holders, richest first
+     */
+    public List<String> top(int n) {
+        List<String> names = new ArrayList<>(Math.min(Math.max(n, 0), size.get()));
+        Set<String> seen = new HashSet<>();
+        Iterator<Entry> it = entries.descendingIterator();
+        while (names.size() < n && it.hasNext()) {
+            String name = it.next().accountHolder;
+            // A wallet moving up during the walk can be met twice
+            if (seen.add(name)) names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Account holders with min <= balance <= max, poorest first
+     */
+    public List<String> range(BigDecimal min, BigDecimal max) {
+        List<String> names = new ArrayList<>();
+        if (min.compareTo(max) > 0) return names;
+        Set<String> seen = new HashSet<>();
+        for (Entry entry : entries.tailSet(lowest(min))) {
+            if (entry.balance.compareTo(max) > 0) break;
+            if (seen.add(entry.accountHolder)) names.add(entry.accountHolder);
+        }
+        return names;
+    }
+
+    /**
+     * Number of wallets with min <= balance <= max
+     */
+    public int count(BigDecimal min, BigDecimal max) {
+        return range(min, max).size();
+    }
+
+    /**
+     * Nearest-rank percentile of all balances, or null if the index is empty
+     */
+    public BigDecimal percentile(double p) {
+        int total = size.get();
+        if (total == 0) return null;
+        int rank = Math.max(1, Math.min((int) Math.ceil(p / 100.0 * total), total));
+        BigDecimal last = null;
+        int seen = 0;
+        for (Entry entry : entries) {
+            last = entry.balance;
+            if (++seen == rank) break;
+        }
+        return last;
+    }
+
+    // Sorts before every entry with this balance: "" is the smallest String
+    private static Entry lowest(BigDecimal balance) {
+        return new Entry("", balance);
+    }
+
+    private static final class Entry {
+        final String accountHolder;
+        final BigDecimal balance;
+
+        Entry(String accountHolder, BigDecimal balance) {
+            this.accountHolder = accountHolder;
+            this.balance = balance;
+        }
+    }
+}
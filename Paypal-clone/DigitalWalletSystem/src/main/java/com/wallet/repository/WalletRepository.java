@@ -14,17 +14,24 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class WalletRepository {
     private final ConcurrentHashMap<String, Wallet> walletMap;
+    private final BalanceIndex balanceIndex;
 
     public WalletRepository() {
         // Initial capacity: 16K wallets, 16 concurrent segments
         this.walletMap = new ConcurrentHashMap<>(16384, 0.75f, 16);
+        this.balanceIndex = new BalanceIndex();
     }
 
     public void save(Wallet wallet) {
-        if (walletMap.containsKey(wallet.getAccountHolder())) {
-            throw new DuplicateWalletException(wallet.getAccountHolder());
+        // Balance changes synchronize on the wallet too, so none can slip in
+        // between publishing it and indexing its opening balance
+        synchronized (wallet) {
+            if (walletMap.putIfAbsent(wallet.getAccountHolder(), wallet) != null) {
+                throw new DuplicateWalletException(wallet.getAccountHolder());
+            }
+            balanceIndex.add(wallet.getAccountHolder(), wallet.getBalance());
+            wallet.setBalanceListener(balanceIndex);
         }
-        walletMap.put(wallet.getAccountHolder(), wallet);
     }
 
     public Wallet get(String accountHolder) {
@@ -35,6 +42,10 @@ public class WalletRepository {
         return w;
     }
 
+    public BalanceIndex getBalanceIndex() {
+        return balanceIndex;
+    }
+
     public List<Wallet> getAll() {
         return new ArrayList<>(walletMap.values());
     }
@@ -0,0 +1,111 @@
+package main.java.com.wallet.server;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives transfers through {@link WalletClient} connections and reports
+ * end-to-end throughput and latency percentiles.
+ */
+public class LoadDriver {
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final int pipelineDepth;
+
+    public LoadDriver(String host, int port, int connections, int pipelineDepth) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public void run(int numUsers, int totalTransfers) throws Exception {
+        System.out.println("Run load test against " + host + ":" + port + "...");
+        System.out.println("  Connections: " + connections + ", Pipeline depth: " + pipelineDepth);
+
+        List<WalletClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                clients.add(new WalletClient(host, port, pipelineDepth));
+            }
+
+            System.out.print("Creating " + numUsers + " wallets... ");
+            List<CompletableFuture<List<String>>> setup = new ArrayList<>(numUsers);
+            for (int i = 0; i < numUsers; i++) {
+                setup.add(clients.get(i % connections).createWallet("User" + i, new BigDecimal("10000")));
+            }
+            CompletableFuture.allOf(setup.toArray(new CompletableFuture<?>[0])).join();
+            System.out.println("✓");
+
+            long[] latencies = new long[totalTransfers];
+            AtomicInteger failCount = new AtomicInteger(0);
+            CompletableFuture<?>[] results = new CompletableFuture<?>[totalTransfers];
+
+            System.out.print("Executing " + String.format("%,d", totalTransfers) + " transfers... ");
+            long startTime = System.nanoTime();
+
+            Thread[] senders = new Thread[connections];
+            for (int c = 0; c < connections; c++) {
+                final int connectionIndex = c;
+                final WalletClient client = clients.get(c);
+                senders[c] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = connectionIndex; i < totalTransfers; i += connections) {
+                        final int index = i;
+                        int from = random.nextInt(numUsers);
+                        int to = random.nextInt(numUsers);
+                        if (to == from) {
+                            to = (to + 1) % numUsers;
+                        }
+                        long sentAt = System.nanoTime();
+                        results[index] = client.transferMoney("User" + from, "User" + to, new BigDecimal("1"))
+                                .whenComplete((r, e) -> {
+                                    latencies[index] = System.nanoTime() - sentAt;
+                                    if (e != null) failCount.incrementAndGet();
+                                });
+                    }
+                }, "load-driver-" + c);
+                senders[c].start();
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            CompletableFuture.allOf(results).exceptionally(e -> null).join();
+            long duration = System.nanoTime() - startTime;
+            System.out.println("✓");
+
+            Arrays.sort(latencies);
+            double tps = totalTransfers / (duration / 1_000_000_000.0);
+
+            System.out.println("\nResults:");
+            System.out.println("  Total Transfers: " + String.format("%,d", totalTransfers));
+            System.out.println("  Failed: " + failCount.get());
+            System.out.println("  Duration: " + (duration / 1_000_000) + " ms");
+            System.out.println("  Throughput: " + String.format("%.0f TPS", tps));
+            System.out.println("  Latency p50: " + formatMillis(percentile(latencies, 50)));
+            System.out.println("  Latency p99: " + formatMillis(percentile(latencies, 99)));
+            System.out.println("  Latency p99.9: " + formatMillis(percentile(latencies, 99.9)));
+            System.out.println("  Latency max: " + formatMillis(latencies[latencies.length - 1]));
+            System.out.println();
+        } finally {
+            for (WalletClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+}
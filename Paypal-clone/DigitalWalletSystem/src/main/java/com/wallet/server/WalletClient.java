@@ -0,0 +1,205 @@
+package main.java.com.wallet.server;
+
+import main.java.com.wallet.exception.WalletException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipelining client for {@link WalletServer}.
+ * Calls return immediately with a future; a writer thread coalesces queued
+ * requests into one socket write and a reader thread completes futures by
+ * request id. At most maxOutstanding requests are unanswered at a time.
+ */
+public class WalletClient implements AutoCloseable {
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ConcurrentHashMap<Integer, CompletableFuture<List<String>>> pending;
+    private final LinkedBlockingQueue<ByteBuffer> outbound;
+    private final Semaphore outstanding;
+    private final AtomicInteger requestIds;
+    private final Thread writer;
+    private final Thread reader;
+    private volatile boolean closed;
+
+    public WalletClient(String host, int port, int maxOutstanding) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.socket().setTcpNoDelay(true);
+        this.pending = new ConcurrentHashMap<>();
+        this.outbound = new LinkedBlockingQueue<>();
+        this.outstanding = new Semaphore(maxOutstanding);
+        this.requestIds = new AtomicInteger();
+        this.writer = new Thread(this::writeLoop, "wallet-client-writer");
+        this.reader = new Thread(this::readLoop, "wallet-client-reader");
+        this.writer.setDaemon(true);
+        this.reader.setDaemon(true);
+        this.writer.start();
+        this.reader.start();
+    }
+
+    public CompletableFuture<List<String>> ping() {
+        return call(WalletProtocol.PING);
+    }
+
+    public CompletableFuture<List<String>> createWallet(String name, BigDecimal amount) {
+        return call(WalletProtocol.CREATE_WALLET, name, amount.toPlainString());
+    }
+
+    public CompletableFuture<List<String>> transferMoney(String fromUser, String toUser, BigDecimal amount) {
+        return call(WalletProtocol.TRANSFER_MONEY, fromUser, toUser, amount.toPlainString());
+    }
+
+    public CompletableFuture<List<String>> statement(String name) {
+        return call(WalletProtocol.STATEMENT, name);
+    }
+
+    public CompletableFuture<List<String>> overview() {
+        return call(WalletProtocol.OVERVIEW);
+    }
+
+    public CompletableFuture<List<String>> offer2() {
+        return call(WalletProtocol.OFFER2);
+    }
+
+    public CompletableFuture<List<String>> createFixedDeposit(String name, BigDecimal amount) {
+        return call(WalletProtocol.FIXED_DEPOSIT, name, amount.toPlainString());
+    }
+
+    private CompletableFuture<List<String>> call(byte opcode, String... args) {
+        if (closed) {
+            throw new WalletException("Client is closed");
+        }
+        outstanding.acquireUninterruptibly();
+
+        int requestId = requestIds.incrementAndGet();
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> outstanding.release());
+        pending.put(requestId, future);
+        // failAll sets closed before it drains pending, so a request it missed is failed here
+        if (closed && pending.remove(requestId, future)) {
+            future.completeExceptionally(new WalletException("Client is closed"));
+            return future;
+        }
+        outbound.add(WalletProtocol.encodeRequest(requestId, opcode, args));
+        return future;
+    }
+
+    private void writeLoop() {
+        ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BUFFER_SIZE);
+        List<ByteBuffer> drained = new ArrayList<>();
+        try {
+            while (!closed) {
+                drained.add(outbound.take());
+                outbound.drainTo(drained);
+
+                for (ByteBuffer request : drained) {
+                    if (request.remaining() > batch.remaining()) {
+                        flushBatch(batch);
+                    }
+                    if (request.remaining() > batch.capacity()) {
+                        writeFully(request);
+                    } else {
+                        batch.put(request);
+                    }
+                }
+                drained.clear();
+                flushBatch(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failAll(e);
+        }
+    }
+
+    private void flushBatch(ByteBuffer batch) throws IOException {
+        batch.flip();
+        writeFully(batch);
+        batch.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer buf = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+        try {
+            while (!closed) {
+                if (channel.read(buf) < 0) {
+                    throw new IOException("Connection closed by server");
+                }
+                buf.flip();
+                while (buf.remaining() >= WalletProtocol.LENGTH_FIELD_SIZE) {
+                    int length = buf.getInt(buf.position());
+                    if (length < WalletProtocol.MIN_FRAME_SIZE || length > WalletProtocol.MAX_FRAME_SIZE) {
+                        throw new IOException("Invalid frame length: " + length);
+                    }
+                    if (buf.remaining() < WalletProtocol.LENGTH_FIELD_SIZE + length) break;
+
+                    buf.getInt();
+                    int end = buf.position() + length;
+                    int requestId = buf.getInt();
+                    byte status = buf.get();
+                    List<String> lines = WalletProtocol.readStrings(buf);
+                    buf.position(end);
+
+                    CompletableFuture<List<String>> future = pending.remove(requestId);
+                    if (future == null) continue;
+                    if (status == WalletProtocol.STATUS_OK) {
+                        future.complete(lines);
+                    } else {
+                        future.completeExceptionally(new WalletException(lines.isEmpty() ? "Unknown error" : lines.get(0)));
+                    }
+                }
+                buf.compact();
+
+                if (buf.position() >= WalletProtocol.LENGTH_FIELD_SIZE) {
+                    int needed = buf.getInt(0) + WalletProtocol.LENGTH_FIELD_SIZE;
+                    if (needed > buf.capacity()) {
+                        ByteBuffer larger = ByteBuffer.allocate(needed);
+                        buf.flip();
+                        larger.put(buf);
+                        buf = larger;
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            failAll(e);
+        }
+    }
+
+    private void failAll(Exception cause) {
+        closed = true;
+        for (Integer id : pending.keySet()) {
+            CompletableFuture<List<String>> future = pending.remove(id);
+            if (future != null) {
+                future.completeExceptionally(new WalletException("Connection failed: " + cause.getMessage()));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        failAll(new IOException("Client closed"));
+    }
+}
@@ -0,0 +1,85 @@
+package main.java.com.wallet.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Length-prefixed binary protocol for the wallet server.
+ *
+ * Request:  [int length][int requestId][byte opcode][int argCount]([int len][utf8])*
+ * Response: [int length][int requestId][byte status][int lineCount]([int len][utf8])*
+ *
+ * length counts every byte after the length field. Amounts travel as plain
+ * decimal strings so no precision is lost on the wire. An error response
+ * carries the exception message as its single line.
+ */
+public final class WalletProtocol {
+    public static final byte PING = 0;
+    public static final byte CREATE_WALLET = 1;
+    public static final byte TRANSFER_MONEY = 2;
+    public static final byte STATEMENT = 3;
+    public static final byte OVERVIEW = 4;
+    public static final byte OFFER2 = 5;
+    public static final byte FIXED_DEPOSIT = 6;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final int LENGTH_FIELD_SIZE = 4;
+    public static final int MIN_FRAME_SIZE = 4 + 1 + 4;
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+
+    private WalletProtocol() {
+    }
+
+    public static ByteBuffer encodeRequest(int requestId, byte opcode, String... args) {
+        return encode(requestId, opcode, args);
+    }
+
+    public static ByteBuffer encodeResponse(int requestId, byte status, List<String> lines) {
+        return encode(requestId, status, lines.toArray(new String[0]));
+    }
+
+    /**
+     * Reads the strings that follow the header of a frame whose length field
+     * has already been consumed.
+     */
+    public static List<String> readStrings(ByteBuffer frame) {
+        int count = frame.getInt();
+        if (count < 0 || count > frame.remaining() / 4) {
+            throw new IllegalArgumentException("Corrupt frame: " + count + " strings");
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int len = frame.getInt();
+            if (len < 0 || len > frame.remaining()) {
+                throw new IllegalArgumentException("Corrupt frame: string of " + len + " bytes");
+            }
+            values.add(new String(frame.array(), frame.arrayOffset() + frame.position(), len, StandardCharsets.UTF_8));
+            frame.position(frame.position() + len);
+        }
+        return values;
+    }
+
+    private static ByteBuffer encode(int requestId, byte code, String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        int size = MIN_FRAME_SIZE;
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            size += 4 + encoded[i].length;
+        }
+        if (size > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Frame too large: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE + size);
+        buffer.putInt(size).putInt(requestId).put(code).putInt(values.length);
+        for (byte[] value : encoded) {
+            buffer.putInt(value.length).put(value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,327 @@
+package main.java.com.wallet.server;
+
+import main.java.com.wallet.ApplicationContext;
+import main.java.com.wallet.service.OfferService;
+import main.java.com.wallet.service.WalletService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NIO front end for the wallet engine.
+ * - One selector thread does all socket I/O and frame parsing
+ * - Requests of a connection run in arrival order on the worker pool, so a
+ *   pipelined CreateWallet is always visible to the Transfer behind it
+ * - Queued responses are coalesced into one buffer per write call
+ * - A connection stops being read once maxInFlight responses are pending and
+ *   resumes when it has drained to half of that
+ */
+public class WalletServer implements AutoCloseable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int DRAIN_BATCH = 16;
+
+    private final WalletService walletService;
+    private final OfferService offerService;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ConcurrentLinkedQueue<Connection> pendingWrites;
+    private final Thread selectorThread;
+    private volatile boolean running;
+
+    public WalletServer(ApplicationContext context, int port, int workerThreads, int maxInFlight) throws IOException {
+        this.walletService = context.getWalletService();
+        this.offerService = context.getOfferService();
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+        this.maxInFlight = maxInFlight;
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port));
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.selectorThread = new Thread(this::runLoop, "wallet-server-selector");
+    }
+
+    public void start() {
+        running = true;
+        selectorThread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(5000);
+            workers.shutdown();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select();
+
+                Connection ready;
+                while ((ready = pendingWrites.poll()) != null) {
+                    ready.writeScheduled.set(false);
+                    if (ready.key.isValid()) {
+                        flush(ready);
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection conn = (Connection) key.attachment();
+                            if (key.isReadable()) read(conn);
+                            if (key.isValid() && key.isWritable()) flush(conn);
+                        }
+                    } catch (IOException | IllegalArgumentException e) {
+                        closeConnection(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Wallet server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeConnection(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private void read(Connection conn) throws IOException {
+        int n = conn.channel.read(conn.readBuffer);
+        if (n < 0) {
+            closeConnection(conn.key);
+            return;
+        }
+
+        ByteBuffer buf = conn.readBuffer;
+        buf.flip();
+        while (buf.remaining() >= WalletProtocol.LENGTH_FIELD_SIZE) {
+            int length = buf.getInt(buf.position());
+            if (length < WalletProtocol.MIN_FRAME_SIZE || length > WalletProtocol.MAX_FRAME_SIZE) {
+                throw new IllegalArgumentException("Invalid frame length: " + length);
+            }
+            if (buf.remaining() < WalletProtocol.LENGTH_FIELD_SIZE + length) {
+                break;
+            }
+            int start = buf.position() + WalletProtocol.LENGTH_FIELD_SIZE;
+            ByteBuffer frame = ByteBuffer.wrap(Arrays.copyOfRange(buf.array(), start, start + length));
+            buf.position(start + length);
+
+            conn.inFlight++;
+            conn.submit(() -> handle(conn, frame));
+        }
+        buf.compact();
+
+        // Make room for a frame larger than the current buffer
+        if (buf.position() >= WalletProtocol.LENGTH_FIELD_SIZE) {
+            int needed = buf.getInt(0) + WalletProtocol.LENGTH_FIELD_SIZE;
+            if (needed > buf.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                buf.flip();
+                larger.put(buf);
+                conn.readBuffer = larger;
+            }
+        }
+
+        if (conn.inFlight >= maxInFlight) {
+            conn.key.interestOps(conn.key.interestOps() & ~SelectionKey.OP_READ);
+            conn.readPaused = true;
+        }
+    }
+
+    private void handle(Connection conn, ByteBuffer frame) {
+        int requestId = frame.getInt();
+        byte opcode = frame.get();
+        ByteBuffer response;
+        try {
+            List<String> args = WalletProtocol.readStrings(frame);
+            response = WalletProtocol.encodeResponse(requestId, WalletProtocol.STATUS_OK, execute(opcode, args));
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            response = WalletProtocol.encodeResponse(requestId, WalletProtocol.STATUS_ERROR,
+                    Collections.singletonList(message));
+        }
+
+        conn.responses.add(response);
+        if (conn.writeScheduled.compareAndSet(false, true)) {
+            pendingWrites.add(conn);
+            selector.wakeup();
+        }
+    }
+
+    private List<String> execute(byte opcode, List<String> args) {
+        switch (opcode) {
+            case WalletProtocol.PING:
+                return Collections.emptyList();
+            case WalletProtocol.CREATE_WALLET:
+                walletService.createWallet(args.get(0), new BigDecimal(args.get(1)));
+                return Collections.emptyList();
+            case WalletProtocol.TRANSFER_MONEY:
+                walletService.transferMoney(args.get(0), args.get(1), new BigDecimal(args.get(2)));
+                return Collections.emptyList();
+            case WalletProtocol.STATEMENT:
+                return walletService.getStatement(args.get(0));
+            case WalletProtocol.OVERVIEW:
+                return walletService.getOverview();
+            case WalletProtocol.OFFER2:
+                offerService.triggerOffer2();
+                return Collections.emptyList();
+            case WalletProtocol.FIXED_DEPOSIT:
+                walletService.createFixedDeposit(args.get(0), new BigDecimal(args.get(1)));
+                return Collections.emptyList();
+            default:
+                throw new IllegalArgumentException("Unknown opcode: " + opcode);
+        }
+    }
+
+    private void flush(Connection conn) throws IOException {
+        ByteBuffer out = conn.writeBuffer;
+        while (true) {
+            if (!out.hasRemaining()) {
+                out.clear();
+                ByteBuffer next;
+                while ((next = conn.responses.peek()) != null && next.remaining() <= out.remaining()) {
+                    out.put(next);
+                    conn.responses.poll();
+                    conn.inFlight--;
+                }
+                out.flip();
+
+                if (!out.hasRemaining()) {
+                    if (next == null) break;
+                    // Larger than the batch buffer: write it on its own
+                    conn.channel.write(next);
+                    if (next.hasRemaining()) {
+                        conn.key.interestOps(conn.key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    conn.responses.poll();
+                    conn.inFlight--;
+                    continue;
+                }
+            }
+
+            conn.channel.write(out);
+            if (out.hasRemaining()) {
+                conn.key.interestOps(conn.key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+
+        int ops = conn.key.interestOps() & ~SelectionKey.OP_WRITE;
+        if (conn.readPaused && conn.inFlight <= maxInFlight / 2) {
+            ops |= SelectionKey.OP_READ;
+            conn.readPaused = false;
+        }
+        conn.key.interestOps(ops);
+    }
+
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ConcurrentLinkedQueue<ByteBuffer> responses;
+        final AtomicBoolean writeScheduled;
+        final ByteBuffer writeBuffer;
+        final ArrayDeque<Runnable> requests;
+        ByteBuffer readBuffer;
+        // Selector thread only
+        int inFlight;
+        boolean readPaused;
+        // Guarded by requests
+        boolean draining;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+            this.responses = new ConcurrentLinkedQueue<>();
+            this.writeScheduled = new AtomicBoolean(false);
+            this.writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            this.writeBuffer.flip();
+            this.requests = new ArrayDeque<>();
+            this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        }
+
+        void submit(Runnable request) {
+            synchronized (requests) {
+                requests.add(request);
+                if (draining) return;
+                draining = true;
+            }
+            workers.execute(this::drain);
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Runnable next;
+                synchronized (requests) {
+                    next = requests.poll();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                next.run();
+            }
+            // Yield the worker so one busy connection cannot starve the others
+            workers.execute(this::drain);
+        }
+    }
+}
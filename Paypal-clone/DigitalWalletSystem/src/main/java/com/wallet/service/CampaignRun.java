@@ -0,0 +1,124 @@
+package main.java.com.wallet.service;
+
+import main.java.com.wallet.model.Campaign;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Progress and checkpoint of one campaign execution.
+ * Wallets are fixed at start and split into chunks; each chunk records how
+ * far it got, so a cancelled or failed run resumes without crediting any
+ * wallet twice. Only one execution works on a run at a time.
+ */
+public class CampaignRun {
+    private final Campaign campaign;
+    private final String[] wallets;
+    private final int chunkSize;
+    // Wallets already handled in each chunk
+    private final AtomicIntegerArray chunkCursors;
+    private final AtomicLong processed;
+    private final AtomicLong credited;
+    private final AtomicReference<BigDecimal> totalCredited;
+    private final AtomicBoolean running;
+    private volatile boolean cancelled;
+
+    CampaignRun(Campaign campaign, String[] wallets, int chunkSize) {
+        this.campaign = campaign;
+        this.wallets = wallets;
+        this.chunkSize = chunkSize;
+        this.chunkCursors = new AtomicIntegerArray((wallets.length + chunkSize - 1) / chunkSize);
+        this.processed = new AtomicLong();
+        this.credited = new AtomicLong();
+        this.totalCredited = new AtomicReference<>(BigDecimal.ZERO);
+        this.running = new AtomicBoolean();
+    }
+
+    public Campaign getCampaign() {
+        return campaign;
+    }
+
+    public int getWalletCount() {
+        return wallets.length;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getCredited() {
+        return credited.get();
+    }
+
+    public BigDecimal getTotalCredited() {
+        return totalCredited.get();
+    }
+
+    public double getProgress() {
+        return wallets.length == 0 ? 1.0 : (double) processed.get() / wallets.length;
+    }
+
+    public boolean isComplete() {
+        return processed.get() == wallets.length;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the run after the wallet each worker is currently crediting
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    int getChunkCount() {
+        return chunkCursors.length();
+    }
+
+    int chunkStart(int chunk) {
+        return chunk * chunkSize;
+    }
+
+    int chunkEnd(int chunk) {
+        return Math.min(wallets.length, (chunk + 1) * chunkSize);
+    }
+
+    int resumeIndex(int chunk) {
+        return chunkStart(chunk) + chunkCursors.get(chunk);
+    }
+
+    String walletAt(int index) {
+        return wallets[index];
+    }
+
+    void advance(int chunk, BigDecimal amount) {
+        chunkCursors.incrementAndGet(chunk);
+        processed.incrementAndGet();
+        if (amount != null) {
+            credited.incrementAndGet();
+            totalCredited.accumulateAndGet(amount, BigDecimal::add);
+        }
+    }
+
+    /**
+     * @return false if another execution already owns the run
+     */
+    boolean tryStart() {
+        if (!running.compareAndSet(false, true)) return false;
+        cancelled = false;
+        return true;
+    }
+
+    void finish() {
+        running.set(false);
+    }
+}
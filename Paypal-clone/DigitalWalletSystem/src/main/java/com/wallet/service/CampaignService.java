@@ -0,0 +1,110 @@
+package main.java.com.wallet.service;
+
+import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.model.Campaign;
+import main.java.com.wallet.model.Wallet;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Runs bulk credit campaigns over every wallet with fork-join parallelism.
+ * Each wallet is evaluated and credited under its write lock, so campaigns
+ * interleave safely with concurrent transfers.
+ */
+public class CampaignService {
+    private static final int CHUNK_SIZE = 1024;
+
+    private final WalletService walletService;
+    private final ForkJoinPool pool;
+
+    public CampaignService(WalletService walletService) {
+        this(walletService, ForkJoinPool.commonPool());
+    }
+
+    public CampaignService(WalletService walletService, ForkJoinPool pool) {
+        this.walletService = walletService;
+        this.pool = pool;
+    }
+
+    public CampaignRun start(Campaign campaign) {
+        return start(campaign, run -> { });
+    }
+
+    /**
+     * @param onChunk called after every finished chunk, from the worker thread
+     */
+    public CampaignRun start(Campaign campaign, Consumer<CampaignRun> onChunk) {
+        List<Wallet> wallets = walletService.getAllWallets();
+        String[] names = new String[wallets.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = wallets.get(i).getAccountHolder();
+        }
+        CampaignRun run = new CampaignRun(campaign, names, CHUNK_SIZE);
+        return resume(run, onChunk);
+    }
+
+    /**
+     * Continues a cancelled or failed run from its per-chunk checkpoints.
+     * Two executions of one run would both credit from the same cursor, so
+     * a run that is still executing is refused.
+     */
+    public CampaignRun resume(CampaignRun run, Consumer<CampaignRun> onChunk) {
+        if (!run.tryStart()) {
+            throw new WalletException("Campaign " + run.getCampaign().getName() + " is already running");
+        }
+        try {
+            pool.invoke(new ChunkTask(run, onChunk, 0, run.getChunkCount()));
+        } finally {
+            run.finish();
+        }
+        return run;
+    }
+
+    private void processChunk(CampaignRun run, int chunk) {
+        String from = run.getCampaign().getName();
+        for (int i = run.resumeIndex(chunk); i < run.chunkEnd(chunk); i++) {
+            if (run.isCancelled()) return;
+            BigDecimal amount;
+            try {
+                amount = walletService.creditIf(run.walletAt(i), run.getCampaign()::creditFor, from);
+            } catch (WalletException e) {
+                // Wallet vanished or could not be credited: skip it
+                amount = null;
+            }
+            run.advance(chunk, amount);
+        }
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CampaignRun run;
+        private final Consumer<CampaignRun> onChunk;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ChunkTask(CampaignRun run, Consumer<CampaignRun> onChunk, int fromChunk, int toChunk) {
+            this.run = run;
+            this.onChunk = onChunk;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk <= 1) {
+                if (fromChunk < toChunk && !run.isCancelled()) {
+                    processChunk(run, fromChunk);
+                    onChunk.accept(run);
+                }
+                return;
+            }
+            int mid = (fromChunk + toChunk) >>> 1;
+            invokeAll(new ChunkTask(run, onChunk, fromChunk, mid), new ChunkTask(run, onChunk, mid, toChunk));
+        }
+    }
+}
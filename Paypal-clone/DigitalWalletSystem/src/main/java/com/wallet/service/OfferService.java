@@ -32,7 +32,7 @@ public class OfferService {
 
         for (int i = 0; i < Math.min(allWallets.size(), 3); i++) {
             Wallet winner = allWallets.get(i);
-            winner.credit(rewards[i], "Offer2");
+            walletService.credit(winner.getAccountHolder(), rewards[i], "Offer2");
         }
     }
 }
\ No newline at end of file
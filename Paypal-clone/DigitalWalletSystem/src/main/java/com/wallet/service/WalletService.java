@@ -1,15 +1,26 @@
 package main.java.com.wallet.service;
 
+import main.java.com.wallet.exception.InsufficientBalanceException;
 import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.history.HistoryStore;
+import main.java.com.wallet.model.ActivityRollup;
 import main.java.com.wallet.model.Transaction;
+import main.java.com.wallet.model.TransferLeg;
 import main.java.com.wallet.model.Wallet;
 import main.java.com.wallet.repository.WalletRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * High-performance WalletService: 10K+ TPS
@@ -21,12 +32,19 @@ import java.util.concurrent.locks.StampedLock;
  */
 public class WalletService {
     private final WalletRepository walletRepository;
+    private final HistoryStore historyStore;
     private final ConcurrentHashMap<String, StampedLock> walletLocks;
     private static final BigDecimal MIN_TRANSFER = new BigDecimal("0.0001");
     private static final BigDecimal REWARD_AMOUNT = new BigDecimal("10");
+    private static final long MULTI_LOCK_TIMEOUT_MS = 100;
 
     public WalletService(WalletRepository walletRepository) {
+        this(walletRepository, HistoryStore.inMemory());
+    }
+
+    public WalletService(WalletRepository walletRepository, HistoryStore historyStore) {
         this.walletRepository = walletRepository;
+        this.historyStore = historyStore;
         this.walletLocks = new ConcurrentHashMap<>();
     }
 
@@ -34,7 +52,7 @@ public class WalletService {
         if (amount.compareTo(BigDecimal.ZERO) < 0) {
             throw new WalletException("Initial balance cannot be negative");
         }
-        Wallet wallet = new Wallet(name, amount);
+        Wallet wallet = new Wallet(name, amount, historyStore);
         walletRepository.save(wallet);
         walletLocks.put(name, new StampedLock());
     }
@@ -78,6 +96,76 @@ public class WalletService {
 
     }
 
+    /**
+     * Applies every leg or none of them. Each wallet involved is locked once,
+     * in account-holder order, and net positions are checked before anything
+     * is written. Credits are posted before debits so a wallet that both
+     * receives and pays within the batch only needs to cover its net outflow.
+     * Offer1 is not applied to multi-leg transfers.
+     */
+    public void transferMulti(List<TransferLeg> legs) {
+        if (legs.isEmpty()) {
+            throw new WalletException("Transfer needs at least one leg");
+        }
+
+        TreeSet<String> participants = new TreeSet<>();
+        Map<String, BigDecimal> outgoing = new HashMap<>();
+        Map<String, BigDecimal> incoming = new HashMap<>();
+        for (TransferLeg leg : legs) {
+            if (leg.getAmount().compareTo(MIN_TRANSFER) < 0) {
+                throw new WalletException("Transfer amount too small");
+            }
+            if (leg.getFromUser().equals(leg.getToUser())) {
+                throw new WalletException("Cannot transfer to same account");
+            }
+            participants.add(leg.getFromUser());
+            participants.add(leg.getToUser());
+            outgoing.merge(leg.getFromUser(), leg.getAmount(), BigDecimal::add);
+            incoming.merge(leg.getToUser(), leg.getAmount(), BigDecimal::add);
+        }
+
+        String[] names = participants.toArray(new String[0]);
+        StampedLock[] locks = new StampedLock[names.length];
+        long[] stamps = new long[names.length];
+        int held = 0;
+        try {
+            for (; held < names.length; held++) {
+                locks[held] = walletLocks.computeIfAbsent(names[held], k -> new StampedLock());
+                stamps[held] = locks[held].tryWriteLock(MULTI_LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (stamps[held] == 0) {
+                    throw new WalletException("Timed out locking wallet: " + names[held]);
+                }
+            }
+
+            Map<String, Wallet> wallets = new HashMap<>();
+            for (String name : names) {
+                wallets.put(name, walletRepository.get(name));
+            }
+
+            for (Map.Entry<String, BigDecimal> out : outgoing.entrySet()) {
+                Wallet w = wallets.get(out.getKey());
+                BigDecimal available = w.getBalance().add(incoming.getOrDefault(out.getKey(), BigDecimal.ZERO));
+                if (available.compareTo(out.getValue()) < 0) {
+                    throw new InsufficientBalanceException(out.getKey());
+                }
+            }
+
+            for (TransferLeg leg : legs) {
+                wallets.get(leg.getToUser()).credit(leg.getAmount(), leg.getFromUser());
+            }
+            for (TransferLeg leg : legs) {
+                wallets.get(leg.getFromUser()).debit(leg.getAmount(), leg.getToUser());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalletException("Interrupted while locking wallets");
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                locks[i].unlockWrite(stamps[i]);
+            }
+        }
+    }
+
     private void performTransfer(String fromUser, String toUser, BigDecimal amount) {
         Wallet sender = walletRepository.get(fromUser);
         Wallet receiver = walletRepository.get(toUser);
@@ -114,7 +202,63 @@ public class WalletService {
         }
     }
 
+    public void credit(String name, BigDecimal amount, String from) {
+        withWriteLock(name, () -> walletRepository.get(name).credit(amount, from));
+    }
+
+    public void reserveFunds(String name, BigDecimal amount) {
+        withWriteLock(name, () -> walletRepository.get(name).reserve(amount));
+    }
+
+    public void settleReservation(String name, BigDecimal amount, String to) {
+        withWriteLock(name, () -> walletRepository.get(name).settleReservation(amount, to));
+    }
+
+    public void releaseReservation(String name, BigDecimal amount) {
+        withWriteLock(name, () -> walletRepository.get(name).releaseReservation(amount));
+    }
+
+    /**
+     * Evaluates amountFor and posts the credit under the wallet's write lock
+     *
+     * @return the amount credited, or null if amountFor declined the wallet
+     */
+    public BigDecimal creditIf(String name, Function<Wallet, BigDecimal> amountFor, String from) {
+        return withWriteLock(name, () -> {
+            Wallet w = walletRepository.get(name);
+            BigDecimal amount = amountFor.apply(w);
+            if (amount == null || amount.signum() <= 0) {
+                return null;
+            }
+            w.credit(amount, from);
+            return amount;
+        });
+    }
+
+    private void withWriteLock(String name, Runnable action) {
+        withWriteLock(name, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T withWriteLock(String name, Supplier<T> action) {
+        StampedLock lock = walletLocks.computeIfAbsent(name, k -> new StampedLock());
+        long stamp = lock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
     public void printStatement(String name) {
+        for (String line : getStatement(name)) {
+            System.out.println(line);
+        }
+    }
+
+    public List<String> getStatement(String name) {
         StampedLock lock = walletLocks.computeIfAbsent(name, k -> new StampedLock());
         long stamp = lock.readLock();
         try {
@@ -123,28 +267,81 @@ public class WalletService {
                 throw new WalletException("Wallet not found: " + name);
             }
 
+            List<String> lines = new ArrayList<>();
             for (Transaction t : w.getTransactions()) {
-                System.out.println(t);
+                lines.add(t.toString());
             }
 
             if (w.getFixedDeposit() != null && w.getFixedDeposit().isActive()) {
-                System.out.println("Active FD: " + w.getFixedDeposit().getDepositAmount()
+                lines.add("Active FD: " + w.getFixedDeposit().getDepositAmount()
                         + " | Transactions remaining: " + w.getFixedDeposit().getRemainingTransactions());
             }
+            return lines;
         } finally {
             lock.unlockRead(stamp);
         }
     }
 
     public void printOverview() {
-        List<Wallet> wallets = walletRepository.getAll();
-        for (Wallet w : wallets) {
-            StampedLock lock = walletLocks.computeIfAbsent(w.getAccountHolder(), k -> new StampedLock());
+        for (String line : getOverview()) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * One line per wallet, richest first
+     */
+    public List<String> getOverview() {
+        return describe(walletRepository.getBalanceIndex().descending());
+    }
+
+    /**
+     * The n richest wallets, richest first
+     */
+    public List<String> getRichest(int n) {
+        return describe(walletRepository.getBalanceIndex().top(n));
+    }
+
+    /**
+     * Wallets with min <= balance <= max, poorest first
+     */
+    public List<String> getWalletsInRange(BigDecimal min, BigDecimal max) {
+        return describe(walletRepository.getBalanceIndex().range(min, max));
+    }
+
+    public int countWalletsInRange(BigDecimal min, BigDecimal max) {
+        return walletRepository.getBalanceIndex().count(min, max);
+    }
+
+    /**
+     * Nearest-rank balance percentile across all wallets, p in (0, 100]
+     */
+    public BigDecimal getBalancePercentile(double p) {
+        if (p <= 0 || p > 100) {
+            throw new WalletException("Percentile must be in (0, 100]");
+        }
+        BigDecimal balance = walletRepository.getBalanceIndex().percentile(p);
+        if (balance == null) {
+            throw new WalletException("No wallets");
+        }
+        return balance;
+    }
+
+    public void printBalances(List<String> lines) {
+        for (String line : lines) {
+            System.out.println(line);
+        }
+    }
+
+    private List<String> describe(List<String> accountHolders) {
+        List<String> lines = new ArrayList<>(accountHolders.size());
+        for (String name : accountHolders) {
+            Wallet w = walletRepository.get(name);
+            StampedLock lock = walletLocks.computeIfAbsent(name, k -> new StampedLock());
 
             // Try optimistic read first (no locking!)
             long stamp = lock.tryOptimisticRead();
 
-            String accountHolder = w.getAccountHolder();
             BigDecimal balance = w.getBalance();
             String fdStatus = "";
 
@@ -157,7 +354,6 @@ public class WalletService {
                 // Fallback to read lock if validation failed
                 stamp = lock.readLock();
                 try {
-                    accountHolder = w.getAccountHolder();
                     balance = w.getBalance();
                     if (w.getFixedDeposit() != null && w.getFixedDeposit().isActive()) {
                         fdStatus = " [FD Active: " + w.getFixedDeposit().getDepositAmount() + "]";
@@ -167,8 +363,24 @@ public class WalletService {
                 }
             }
 
-            System.out.println(accountHolder + " " + balance.stripTrailingZeros().toPlainString() + fdStatus);
+            lines.add(name + " " + balance.stripTrailingZeros().toPlainString() + fdStatus);
         }
+        return lines;
+    }
+
+    /**
+     * Hourly and daily rollups of the wallet's statement, answered without
+     * scanning its history
+     */
+    public ActivityRollup getActivity(String name) {
+        return walletRepository.get(name).getActivity();
+    }
+
+    public void printActivity(String name) {
+        ActivityRollup activity = getActivity(name);
+        LocalDateTime now = LocalDateTime.now();
+        System.out.println("This hour: " + activity.getHour(now));
+        System.out.println("Today: " + activity.getDay(now.toLocalDate()));
     }
 
     public List<Wallet> getAllWallets() {
@@ -0,0 +1,113 @@
+package main.java.com.wallet.trace;
+
+import main.java.com.wallet.history.HistoryStore;
+import main.java.com.wallet.model.TransferLeg;
+import main.java.com.wallet.model.Wallet;
+import main.java.com.wallet.repository.WalletRepository;
+import main.java.com.wallet.service.WalletService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * WalletService that appends every call to a {@link TraceWriter} before
+ * running it, so the captured stream can be fed to {@link TraceReplayer}.
+ * creditIf is recorded after the fact as the plain credit it turned into.
+ */
+public class RecordingWalletService extends WalletService implements AutoCloseable {
+    private static final String[] NO_NAMES = new String[0];
+    private static final BigDecimal[] NO_AMOUNTS = new BigDecimal[0];
+
+    private final TraceWriter trace;
+
+    public RecordingWalletService(WalletRepository walletRepository, HistoryStore historyStore, TraceWriter trace) {
+        super(walletRepository, historyStore);
+        this.trace = trace;
+    }
+
+    public TraceWriter getTrace() {
+        return trace;
+    }
+
+    @Override
+    public void createWallet(String name, BigDecimal amount) {
+        trace.append(TraceRecord.CREATE_WALLET, new String[]{name}, new BigDecimal[]{amount});
+        super.createWallet(name, amount);
+    }
+
+    @Override
+    public void transferMoney(String fromUser, String toUser, BigDecimal amount) {
+        trace.append(TraceRecord.TRANSFER_MONEY, new String[]{fromUser, toUser}, new BigDecimal[]{amount});
+        super.transferMoney(fromUser, toUser, amount);
+    }
+
+    @Override
+    public void transferMulti(List<TransferLeg> legs) {
+        String[] names = new String[legs.size() * 2];
+        BigDecimal[] amounts = new BigDecimal[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            names[2 * i] = legs.get(i).getFromUser();
+            names[2 * i + 1] = legs.get(i).getToUser();
+            amounts[i] = legs.get(i).getAmount();
+        }
+        trace.append(TraceRecord.TRANSFER_MULTI, names, amounts);
+        super.transferMulti(legs);
+    }
+
+    @Override
+    public void createFixedDeposit(String name, BigDecimal amount) {
+        trace.append(TraceRecord.FIXED_DEPOSIT, new String[]{name}, new BigDecimal[]{amount});
+        super.createFixedDeposit(name, amount);
+    }
+
+    @Override
+    public void credit(String name, BigDecimal amount, String from) {
+        trace.append(TraceRecord.CREDIT, new String[]{name, from}, new BigDecimal[]{amount});
+        super.credit(name, amount, from);
+    }
+
+    @Override
+    public void reserveFunds(String name, BigDecimal amount) {
+        trace.append(TraceRecord.RESERVE, new String[]{name}, new BigDecimal[]{amount});
+        super.reserveFunds(name, amount);
+    }
+
+    @Override
+    public void settleReservation(String name, BigDecimal amount, String to) {
+        trace.append(TraceRecord.SETTLE, new String[]{name, to}, new BigDecimal[]{amount});
+        super.settleReservation(name, amount, to);
+    }
+
+    @Override
+    public void releaseReservation(String name, BigDecimal amount) {
+        trace.append(TraceRecord.RELEASE, new String[]{name}, new BigDecimal[]{amount});
+        super.releaseReservation(name, amount);
+    }
+
+    @Override
+    public BigDecimal creditIf(String name, Function<Wallet, BigDecimal> amountFor, String from) {
+        BigDecimal amount = super.creditIf(name, amountFor, from);
+        if (amount != null) {
+            trace.append(TraceRecord.CREDIT, new String[]{name, from}, new BigDecimal[]{amount});
+        }
+        return amount;
+    }
+
+    @Override
+    public List<String> getStatement(String name) {
+        trace.append(TraceRecord.STATEMENT, new String[]{name}, NO_AMOUNTS);
+        return super.getStatement(name);
+    }
+
+    @Override
+    public List<String> getOverview() {
+        trace.append(TraceRecord.OVERVIEW, NO_NAMES, NO_AMOUNTS);
+        return super.getOverview();
+    }
+
+    @Override
+    public void close() {
+        trace.close();
+    }
+}
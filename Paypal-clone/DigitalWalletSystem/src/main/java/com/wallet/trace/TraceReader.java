@@ -0,0 +1,176 @@
+package main.java.com.wallet.trace;
+
+import main.java.com.wallet.exception.WalletException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a trace written by {@link TraceWriter}.
+ * Counts and lengths are checked against the bytes left in the file before
+ * anything is allocated for them, so a damaged trace fails as corrupt rather
+ * than with an oversized allocation.
+ */
+public class TraceReader implements AutoCloseable {
+    private final DataInputStream in;
+    private final CountingInputStream counter;
+    private final long fileSize;
+    private final List<String> names;
+    private final long startEpochMillis;
+    private long offsetNanos;
+
+    public TraceReader(Path file) {
+        try {
+            this.fileSize = Files.size(file);
+            this.counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+            this.in = new DataInputStream(counter);
+            if (in.readInt() != TraceWriter.MAGIC) {
+                in.close();
+                throw new WalletException("Not a wallet trace: " + file);
+            }
+            short version = in.readShort();
+            if (version != TraceWriter.VERSION) {
+                in.close();
+                throw new WalletException("Unsupported trace version " + version + ": " + file);
+            }
+            this.startEpochMillis = in.readLong();
+        } catch (IOException e) {
+            throw new WalletException("Cannot read trace " + file + ": " + e.getMessage());
+        }
+        this.names = new ArrayList<>();
+        this.names.add(null);
+    }
+
+    public static List<TraceRecord> readAll(Path file) {
+        List<TraceRecord> records = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(file)) {
+            TraceRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * @return the next record, or null at the end of the trace
+     */
+    public TraceRecord next() {
+        try {
+            offsetNanos += readVarLong();
+            int thread = (int) readVarLong();
+            byte op = in.readByte();
+
+            // Every name takes at least one byte, every amount at least three
+            String[] recordNames = new String[readLength(1, "name count")];
+            for (int i = 0; i < recordNames.length; i++) {
+                long id = readVarLong();
+                if (id == 0) {
+                    recordNames[i] = in.readUTF();
+                    names.add(recordNames[i]);
+                } else if (id > 0 && id < names.size()) {
+                    recordNames[i] = names.get((int) id);
+                } else {
+                    throw new IOException("unknown name id " + id);
+                }
+            }
+
+            BigDecimal[] amounts = new BigDecimal[readLength(3, "amount count")];
+            for (int i = 0; i < amounts.length; i++) {
+                long scale = readVarLong();
+                if (scale != (int) scale) {
+                    throw new IOException("scale out of range: " + scale);
+                }
+                byte[] unscaled = new byte[readLength(1, "amount length")];
+                if (unscaled.length == 0) {
+                    throw new IOException("empty amount");
+                }
+                in.readFully(unscaled);
+                amounts[i] = new BigDecimal(new BigInteger(unscaled), (int) scale);
+            }
+            return new TraceRecord(offsetNanos, thread, op, recordNames, amounts);
+        } catch (EOFException e) {
+            // A capture that was cut short ends at its last complete record
+            return null;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new WalletException("Corrupt trace: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Reads a count of items taking at least minBytes each, refusing one the
+     * rest of the file cannot hold
+     */
+    private int readLength(int minBytes, String what) throws IOException {
+        long length = readVarLong();
+        long remaining = fileSize - counter.count;
+        if (length < 0 || length > remaining / minBytes) {
+            throw new IOException(what + " " + length + " exceeds the " + remaining + " bytes left");
+        }
+        return (int) length;
+    }
+
+    private long readVarLong() throws IOException {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            shift += 7;
+            if (shift > 63) throw new IOException("varint too long");
+        }
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
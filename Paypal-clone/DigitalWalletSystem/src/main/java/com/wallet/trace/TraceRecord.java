@@ -0,0 +1,67 @@
+package main.java.com.wallet.trace;
+
+import java.math.BigDecimal;
+
+/**
+ * One captured call into {@link main.java.com.wallet.service.WalletService}.
+ * Arguments are flattened into account names and amounts:
+ * - CREATE_WALLET: [name] [opening balance]
+ * - TRANSFER_MONEY: [from, to] [amount]
+ * - TRANSFER_MULTI: [from1, to1, from2, to2, ...] [amount1, amount2, ...]
+ * - FIXED_DEPOSIT, RESERVE, RELEASE: [name] [amount]
+ * - CREDIT, SETTLE: [name, counterparty] [amount]
+ * - STATEMENT: [name] []
+ * - OVERVIEW: [] []
+ */
+public final class TraceRecord {
+    public static final byte CREATE_WALLET = 1;
+    public static final byte TRANSFER_MONEY = 2;
+    public static final byte TRANSFER_MULTI = 3;
+    public static final byte FIXED_DEPOSIT = 4;
+    public static final byte CREDIT = 5;
+    public static final byte RESERVE = 6;
+    public static final byte SETTLE = 7;
+    public static final byte RELEASE = 8;
+    public static final byte STATEMENT = 9;
+    public static final byte OVERVIEW = 10;
+
+    private final long offsetNanos;
+    private final int thread;
+    private final byte op;
+    private final String[] names;
+    private final BigDecimal[] amounts;
+
+    public TraceRecord(long offsetNanos, int thread, byte op, String[] names, BigDecimal[] amounts) {
+        this.offsetNanos = offsetNanos;
+        this.thread = thread;
+        this.op = op;
+        this.names = names;
+        this.amounts = amounts;
+    }
+
+    /**
+     * Nanoseconds since the capture started
+     */
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    /**
+     * Small id of the capturing thread; calls of one thread keep their order
+     */
+    public int getThread() {
+        return thread;
+    }
+
+    public byte getOp() {
+        return op;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public BigDecimal[] getAmounts() {
+        return amounts;
+    }
+}
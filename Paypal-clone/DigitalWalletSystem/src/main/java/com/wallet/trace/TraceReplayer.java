@@ -0,0 +1,170 @@
+package main.java.com.wallet.trace;
+
+import main.java.com.wallet.model.TransferLeg;
+import main.java.com.wallet.service.WalletService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a captured trace to a WalletService and reports throughput and
+ * latency percentiles.
+ * - Each capturing thread gets its own replay thread, so per-thread call
+ *   order and the original degree of concurrency are kept
+ * - speed 1 replays at the captured pace, N at N times that pace, and 0 or
+ *   less as fast as possible
+ * - Paced replays measure latency from each call's scheduled start, so a
+ *   stalled engine is charged for the calls queued behind it; unpaced
+ *   replays measure service time only
+ */
+public class TraceReplayer {
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    private final List<TraceRecord> records;
+    private final int threads;
+
+    public TraceReplayer(List<TraceRecord> records) {
+        this.records = records;
+        int maxThread = -1;
+        for (TraceRecord record : records) {
+            maxThread = Math.max(maxThread, record.getThread());
+        }
+        this.threads = maxThread + 1;
+    }
+
+    public void run(String label, WalletService engine, double speed) throws InterruptedException {
+        System.out.println("Replay " + String.format("%,d", records.size()) + " calls on " + threads + " threads against "
+                + label + " at " + (speed > 0 ? speed + "x" : "max") + " speed...");
+
+        long[] latencies = new long[records.size()];
+        AtomicInteger failCount = new AtomicInteger(0);
+        List<LinkedBlockingQueue<Integer>> queues = new ArrayList<>(threads);
+        Thread[] workers = new Thread[threads];
+        long[] scheduledAt = new long[records.size()];
+
+        for (int t = 0; t < threads; t++) {
+            LinkedBlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+            queues.add(queue);
+            workers[t] = new Thread(() -> {
+                try {
+                    while (true) {
+                        int index = queue.take();
+                        if (index < 0) return;
+                        long begin = System.nanoTime();
+                        try {
+                            execute(engine, records.get(index));
+                        } catch (Exception e) {
+                            failCount.incrementAndGet();
+                        }
+                        long end = System.nanoTime();
+                        latencies[index] = end - (speed > 0 ? scheduledAt[index] : begin);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "trace-replay-" + t);
+            workers[t].start();
+        }
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < records.size(); i++) {
+            TraceRecord record = records.get(i);
+            if (speed > 0) {
+                scheduledAt[i] = startTime + (long) (record.getOffsetNanos() / speed);
+                waitUntil(scheduledAt[i]);
+            }
+            queues.get(record.getThread()).add(i);
+        }
+        for (LinkedBlockingQueue<Integer> queue : queues) {
+            queue.add(-1);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long duration = System.nanoTime() - startTime;
+
+        Arrays.sort(latencies);
+        double tps = records.size() / (duration / 1_000_000_000.0);
+
+        System.out.println("\nResults (" + label + "):");
+        System.out.println("  Calls: " + String.format("%,d", records.size()));
+        System.out.println("  Failed: " + failCount.get());
+        System.out.println("  Duration: " + (duration / 1_000_000) + " ms");
+        System.out.println("  Throughput: " + String.format("%.0f ops/sec", tps));
+        if (latencies.length > 0) {
+            System.out.println("  Latency p50: " + formatMillis(percentile(latencies, 50)));
+            System.out.println("  Latency p99: " + formatMillis(percentile(latencies, 99)));
+            System.out.println("  Latency p99.9: " + formatMillis(percentile(latencies, 99.9)));
+            System.out.println("  Latency max: " + formatMillis(latencies[latencies.length - 1]));
+        }
+        System.out.println();
+    }
+
+    private static void execute(WalletService engine, TraceRecord record) {
+        String[] names = record.getNames();
+        BigDecimal[] amounts = record.getAmounts();
+        switch (record.getOp()) {
+            case TraceRecord.CREATE_WALLET:
+                engine.createWallet(names[0], amounts[0]);
+                break;
+            case TraceRecord.TRANSFER_MONEY:
+                engine.transferMoney(names[0], names[1], amounts[0]);
+                break;
+            case TraceRecord.TRANSFER_MULTI:
+                List<TransferLeg> legs = new ArrayList<>(amounts.length);
+                for (int i = 0; i < amounts.length; i++) {
+                    legs.add(new TransferLeg(names[2 * i], names[2 * i + 1], amounts[i]));
+                }
+                engine.transferMulti(legs);
+                break;
+            case TraceRecord.FIXED_DEPOSIT:
+                engine.createFixedDeposit(names[0], amounts[0]);
+                break;
+            case TraceRecord.CREDIT:
+                engine.credit(names[0], amounts[0], names[1]);
+                break;
+            case TraceRecord.RESERVE:
+                engine.reserveFunds(names[0], amounts[0]);
+                break;
+            case TraceRecord.SETTLE:
+                engine.settleReservation(names[0], amounts[0], names[1]);
+                break;
+            case TraceRecord.RELEASE:
+                engine.releaseReservation(names[0], amounts[0]);
+                break;
+            case TraceRecord.STATEMENT:
+                engine.getStatement(names[0]);
+                break;
+            case TraceRecord.OVERVIEW:
+                engine.getOverview();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown trace op: " + record.getOp());
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,212 @@
+package main.java.com.wallet.trace;
+
+import main.java.com.wallet.exception.WalletException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends {@link TraceRecord}s to a compact binary file.
+ *
+ * Header: [int magic][short version][long capture start, epoch millis]
+ * Record: [varlong nanos since previous][varint thread][byte op]
+ *         [varint nameCount](name)*[varint amountCount](amount)*
+ * Name:   [varint 0][utf] the first time, then [varint id] of that name
+ * Amount: [varint scale][varint length][unscaled two's-complement bytes]
+ *
+ * Callers only capture the call and push it onto a lock-free queue; one
+ * writer thread drains the queue, assigns name ids and encodes. Queue order
+ * fixes the order in which the replayer sees calls from different threads,
+ * and each thread's calls stay in program order.
+ *
+ * Callers announce themselves before checking that the trace is open, and
+ * the writer only stops once it is closed, no caller is still appending and
+ * the queue is empty; a call accepted while close() runs is still written.
+ */
+public class TraceWriter implements AutoCloseable {
+    static final int MAGIC = 0x57545243;
+    static final short VERSION = 1;
+
+    private static final long IDLE_PARK_NANOS = 100_000;
+    // Callers wait for the writer once this many records are queued
+    private static final long MAX_BACKLOG = 1 << 16;
+
+    private final DataOutputStream out;
+    private final ConcurrentLinkedQueue<TraceRecord> queue;
+    private final LongAdder appended;
+    private final AtomicInteger appending;
+    private final AtomicInteger threadIds;
+    private final ThreadLocal<Integer> threadId;
+    private final long startNanos;
+    private final Thread writer;
+    // Written only by the writer thread
+    private final Map<String, Integer> nameIds;
+    private volatile long lastOffsetNanos;
+    private volatile long written;
+    private volatile String failure;
+    private volatile boolean closed;
+
+    private TraceWriter(DataOutputStream out) {
+        this.out = out;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.appended = new LongAdder();
+        this.appending = new AtomicInteger();
+        this.nameIds = new HashMap<>();
+        this.threadIds = new AtomicInteger();
+        this.threadId = ThreadLocal.withInitial(threadIds::getAndIncrement);
+        this.startNanos = System.nanoTime();
+        this.writer = new Thread(this::writeLoop, "trace-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static TraceWriter open(Path file) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            return new TraceWriter(out);
+        } catch (IOException e) {
+            throw new WalletException("Cannot open trace " + file + ": " + e.getMessage());
+        }
+    }
+
+    public void append(byte op, String[] names, BigDecimal[] amounts) {
+        if (failure != null) {
+            throw new WalletException("Failed to write trace: " + failure);
+        }
+        appending.incrementAndGet();
+        try {
+            if (closed) {
+                throw new WalletException("Trace is closed");
+            }
+            while (appended.sum() - written >= MAX_BACKLOG && failure == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            if (failure != null) {
+                throw new WalletException("Failed to write trace: " + failure);
+            }
+            queue.add(new TraceRecord(System.nanoTime() - startNanos, threadId.get(), op, names, amounts));
+            appended.increment();
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Calls captured so far, once the writer has caught up with them
+     */
+    public long getRecordCount() {
+        awaitWritten();
+        return written;
+    }
+
+    public long getElapsedNanos() {
+        awaitWritten();
+        return lastOffsetNanos;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new WalletException("Failed to close trace: " + e.getMessage());
+        }
+        if (failure != null) {
+            throw new WalletException("Failed to write trace: " + failure);
+        }
+    }
+
+    private void writeLoop() {
+        boolean dirty = false;
+        try {
+            while (true) {
+                TraceRecord record = queue.poll();
+                if (record != null) {
+                    write(record);
+                    dirty = true;
+                    continue;
+                }
+                // In this order: a caller that saw the trace open has announced itself by now
+                if (closed && appending.get() == 0 && queue.isEmpty()) return;
+                if (dirty) {
+                    // Idle: let what was captured so far reach the file
+                    out.flush();
+                    dirty = false;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        } catch (IOException e) {
+            failure = e.getMessage();
+            queue.clear();
+        }
+    }
+
+    private void write(TraceRecord record) throws IOException {
+        // Calls can be queued slightly out of capture order; time never runs backwards in the file
+        long offset = Math.max(record.getOffsetNanos(), lastOffsetNanos);
+        writeVarLong(offset - lastOffsetNanos);
+        writeVarLong(record.getThread());
+        out.writeByte(record.getOp());
+        writeVarLong(record.getNames().length);
+        for (String name : record.getNames()) {
+            writeName(name);
+        }
+        writeVarLong(record.getAmounts().length);
+        for (BigDecimal amount : record.getAmounts()) {
+            byte[] unscaled = amount.unscaledValue().toByteArray();
+            writeVarLong(amount.scale());
+            writeVarLong(unscaled.length);
+            out.write(unscaled);
+        }
+        lastOffsetNanos = offset;
+        written++;
+    }
+
+    private void awaitWritten() {
+        while (written < appended.sum() && failure == null && writer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private void writeName(String name) throws IOException {
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            writeVarLong(id);
+            return;
+        }
+        nameIds.put(name, nameIds.size() + 1);
+        writeVarLong(0);
+        out.writeUTF(name);
+    }
+
+    // Zig-zag, so the odd negative scale stays short as well
+    private void writeVarLong(long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
@@ -0,0 +1,319 @@
+package test.java.com.wallet.cluster;
+
+import main.java.com.wallet.cluster.InProcessTransport;
+import main.java.com.wallet.cluster.ShardRequest;
+import main.java.com.wallet.cluster.ShardTransport;
+import main.java.com.wallet.cluster.WalletCluster;
+import main.java.com.wallet.cluster.WalletShard;
+import main.java.com.wallet.model.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalletClusterTest {
+
+    private static final BigDecimal OPENING = new BigDecimal("1000");
+
+    @Test
+    void concurrentCommitsOfOneTransferSettleItOnce() throws Exception {
+        WalletShard shard = new WalletShard(0);
+        shard.getWalletService().createWallet("A", OPENING);
+        shard.getWalletService().createWallet("B", OPENING);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (long txId = 1; txId <= 500; txId++) {
+                assertTrue(shard.prepareDebit(txId, "A", "B", BigDecimal.ONE, deadline));
+                long id = txId;
+                // The coordinator's commit and recovery's re-drive of it
+                var first = pool.submit(() -> shard.commit(id));
+                var second = pool.submit(() -> shard.commit(id));
+                assertTrue(first.get());
+                assertTrue(second.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Wallet a = shard.getRepository().get("A");
+        assertEquals(0, a.getBalance().compareTo(new BigDecimal("500")));
+        assertEquals(0, a.getReserved().signum());
+    }
+
+    @Test
+    void abortAfterCommitReportsTheCommit() {
+        WalletShard shard = new WalletShard(0);
+        shard.getWalletService().createWallet("A", OPENING);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        assertTrue(shard.prepareCredit(1, "A", "B", BigDecimal.TEN, deadline));
+        assertTrue(shard.commit(1));
+        assertFalse(shard.abort(1));
+        assertTrue(shard.commit(1));
+        assertEquals(0, shard.getRepository().get("A").getBalance().compareTo(new BigDecimal("1010")));
+    }
+
+    @Test
+    void prepareArrivingAfterAbortIsRefusedAndHoldsNothing() {
+        WalletShard shard = new WalletShard(0);
+        shard.getWalletService().createWallet("A", OPENING);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        assertTrue(shard.abort(1));
+        assertTrue(shard.abort(2));
+        assertFalse(shard.prepareCredit(1, "A", "B", BigDecimal.TEN, deadline));
+        assertFalse(shard.prepareDebit(2, "A", "B", BigDecimal.TEN, deadline));
+        assertEquals(0, shard.getPendingReservationCount());
+        assertEquals(0, shard.getRepository().get("A").getReserved().signum());
+    }
+
+    @Test
+    void expiredDebitCannotBeCommitted() {
+        WalletShard shard = new WalletShard(0);
+        shard.getWalletService().createWallet("A", OPENING);
+        long now = System.nanoTime();
+        assertTrue(shard.prepareDebit(1, "A", "B", BigDecimal.TEN, now));
+        assertEquals(1, shard.expireReservations(now + 1));
+        assertFalse(shard.commit(1));
+        Wallet a = shard.getRepository().get("A");
+        assertEquals(0, a.getBalance().compareTo(OPENING));
+        assertEquals(0, a.getReserved().signum());
+    }
+
+    @Test
+    void commitSurvivesOutcomesPurgedBeforeTheCreditArrives() throws Exception {
+        // The credit commit is lost, so the receiving side only hears of it from recovery
+        assertTransferSurvivesPurge(false, true);
+    }
+
+    @Test
+    void commitSurvivesOutcomesPurgedAfterALostDebitAcknowledgement() throws Exception {
+        // The debit is settled but its answer is lost, so recovery has to ask again
+        assertTransferSurvivesPurge(true, false);
+    }
+
+    private static void assertTransferSurvivesPurge(boolean loseDebitAnswer, boolean loseCreditRequest) throws Exception {
+        List<WalletShard> shards = List.of(new WalletShard(0), new WalletShard(1));
+        LossyTransport transport = new LossyTransport(new InProcessTransport(shards, 1));
+        try (WalletCluster cluster = new WalletCluster(shards, transport, 500)) {
+            List<String> names = spreadOverShards(cluster, 2);
+            cluster.createWallet(names.get(0), OPENING);
+            cluster.createWallet(names.get(1), OPENING);
+            int fromShard = cluster.getRouter().shardFor(names.get(0));
+            int toShard = cluster.getRouter().shardFor(names.get(1));
+
+            // Each shard gets its vote through; what follows is lost
+            if (loseDebitAnswer) transport.loseAfter(fromShard, 1, true);
+            if (loseCreditRequest) transport.loseAfter(toShard, 1, false);
+            try {
+                cluster.transferMoney(names.get(0), names.get(1), new BigDecimal("100"));
+            } catch (RuntimeException expected) {
+                // In doubt
+            }
+            assertEquals(1, cluster.getInDoubtCount());
+
+            // Long enough for every shard to drop outcomes kept on a timer
+            long later = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+            for (WalletShard shard : shards) {
+                shard.expireReservations(later);
+            }
+            transport.heal();
+            long deadlineAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (cluster.getInDoubtCount() > 0 && System.nanoTime() < deadlineAt) {
+                cluster.recoverInDoubtTransfers();
+            }
+
+            assertEquals(0, cluster.getInDoubtCount());
+            assertEquals(0, cluster.getWallet(names.get(0)).getBalance().compareTo(new BigDecimal("900")));
+            assertEquals(0, cluster.getWallet(names.get(1)).getBalance().compareTo(new BigDecimal("1100")));
+            assertEquals(0, pendingReservations(cluster));
+            for (WalletShard shard : shards) {
+                assertEquals(0, shard.getOutcomeCount());
+            }
+        }
+    }
+
+    @Test
+    void crossShardTransfersRacingRecoveryConserveMoney() throws Exception {
+        int wallets = 200;
+        List<WalletShard> shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shards.add(new WalletShard(i));
+        }
+        // Some messages arrive after the 5 ms phase timeout: late votes, lost acknowledgements
+        SlowTransport transport = new SlowTransport(new InProcessTransport(shards, 4));
+        try (WalletCluster cluster = new WalletCluster(shards, transport, 5)) {
+            List<String> names = spreadOverShards(cluster, wallets);
+            for (String name : names) {
+                cluster.createWallet(name, OPENING);
+            }
+
+            AtomicInteger failed = new AtomicInteger();
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread recovery = new Thread(() -> {
+                while (running.get()) {
+                    cluster.recoverInDoubtTransfers();
+                }
+            });
+            recovery.start();
+
+            int threads = 16;
+            CountDownLatch done = new CountDownLatch(threads);
+            List<Thread> clients = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread client = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            int from = random.nextInt(wallets);
+                            int to = (from + 1 + random.nextInt(wallets - 1)) % wallets;
+                            try {
+                                cluster.transferMoney(names.get(from), names.get(to), new BigDecimal(1 + random.nextInt(50)));
+                            } catch (RuntimeException expected) {
+                                // Timed out, in doubt or insufficient funds
+                                failed.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+                clients.add(client);
+                client.start();
+            }
+            assertTrue(done.await(2, TimeUnit.MINUTES));
+            running.set(false);
+            recovery.join();
+            assertTrue(failed.get() > 0, "no transfer ran into a timeout");
+
+            // Let every deadline pass, then resolve whatever is left
+            Thread.sleep(50);
+            long deadlineAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while ((cluster.getInDoubtCount() > 0 || pendingReservations(cluster) > 0) && System.nanoTime() < deadlineAt) {
+                cluster.recoverInDoubtTransfers();
+                for (WalletShard shard : cluster.getShards()) {
+                    shard.expireReservations(System.nanoTime());
+                }
+                Thread.sleep(5);
+            }
+            assertEquals(0, cluster.getInDoubtCount());
+            assertEquals(0, pendingReservations(cluster));
+
+            BigDecimal total = BigDecimal.ZERO;
+            BigDecimal reserved = BigDecimal.ZERO;
+            for (WalletShard shard : cluster.getShards()) {
+                for (Wallet w : shard.getRepository().getAll()) {
+                    total = total.add(w.getBalance());
+                    reserved = reserved.add(w.getReserved());
+                }
+            }
+            assertEquals(0, reserved.signum());
+            assertEquals(0, total.compareTo(OPENING.multiply(BigDecimal.valueOf(wallets))),
+                    "total " + total.toPlainString());
+        }
+    }
+
+    private static final class SlowTransport implements ShardTransport {
+        private final ShardTransport delegate;
+
+        SlowTransport(ShardTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> send(int shardId, ShardRequest<T> request) {
+            if (ThreadLocalRandom.current().nextInt(20) != 0) {
+                return delegate.send(shardId, request);
+            }
+            return delegate.send(shardId, shard -> {
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(2, 12));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return request.apply(shard);
+            });
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    private static final class LossyTransport implements ShardTransport {
+        private final ShardTransport delegate;
+        private volatile int lossyShard = -1;
+        private volatile boolean delivered;
+        private final AtomicInteger passing = new AtomicInteger();
+
+        LossyTransport(ShardTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Lets the next {@code pass} requests to the shard through, then loses
+         * every answer: after running the request if delivered, before otherwise
+         */
+        void loseAfter(int shardId, int pass, boolean delivered) {
+            this.passing.set(pass);
+            this.delivered = delivered;
+            this.lossyShard = shardId;
+        }
+
+        void heal() {
+            lossyShard = -1;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> send(int shardId, ShardRequest<T> request) {
+            if (shardId != lossyShard || passing.getAndDecrement() > 0) {
+                return delegate.send(shardId, request);
+            }
+            if (delivered) {
+                delegate.send(shardId, request);
+            }
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    // Similar names hash close together, so they are picked to fill every shard evenly
+    private static List<String> spreadOverShards(WalletCluster cluster, int count) {
+        int shardCount = cluster.getShards().size();
+        int[] perShard = new int[shardCount];
+        List<String> names = new ArrayList<>();
+        for (int i = 0; names.size() < count; i++) {
+            String name = "User" + i;
+            int shard = cluster.getRouter().shardFor(name);
+            if (perShard[shard] < count / shardCount) {
+                perShard[shard]++;
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static int pendingReservations(WalletCluster cluster) {
+        int pending = 0;
+        for (WalletShard shard : cluster.getShards()) {
+            pending += shard.getPendingReservationCount();
+        }
+        return pending;
+    }
+}
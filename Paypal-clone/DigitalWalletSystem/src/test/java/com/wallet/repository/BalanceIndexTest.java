@@ -0,0 +1,161 @@
+package test.java.com.wallet.repository;
+
+import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.model.Wallet;
+import main.java.com.wallet.repository.BalanceIndex;
+import main.java.com.wallet.repository.WalletRepository;
+import main.java.com.wallet.service.WalletService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceIndexTest {
+
+    private static final Comparator<Map.Entry<String, BigDecimal>> BY_BALANCE_THEN_NAME =
+            Map.Entry.<String, BigDecimal>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    @Test
+    void emptyIndexAnswersEveryQuery() {
+        BalanceIndex index = new BalanceIndex();
+        assertEquals(0, index.size());
+        assertTrue(index.top(5).isEmpty());
+        assertTrue(index.range(BigDecimal.ZERO, BigDecimal.TEN).isEmpty());
+        assertEquals(0, index.count(BigDecimal.ZERO, BigDecimal.TEN));
+        assertNull(index.percentile(50));
+    }
+
+    @Test
+    void equalBalancesAreOrderedByAccountHolder() {
+        BalanceIndex index = new BalanceIndex();
+        index.add("carol", new BigDecimal("10"));
+        index.add("alice", new BigDecimal("10.00"));
+        index.add("bob", new BigDecimal("10.0"));
+        index.add("dave", new BigDecimal("5"));
+
+        assertEquals(List.of("carol", "bob", "alice", "dave"), index.descending());
+        assertEquals(List.of("alice", "bob", "carol"), index.range(new BigDecimal("10"), new BigDecimal("10")));
+        assertEquals(3, index.count(new BigDecimal("10"), new BigDecimal("10")));
+        assertEquals(0, index.count(new BigDecimal("10"), new BigDecimal("5")));
+    }
+
+    @Test
+    void randomUpdatesMatchASortedReference() {
+        Random random = new Random(42);
+        BalanceIndex index = new BalanceIndex();
+        Map<String, BigDecimal> balances = new HashMap<>();
+        Map<String, Wallet> wallets = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String name = "W" + i;
+            BigDecimal balance = BigDecimal.valueOf(random.nextInt(50));
+            balances.put(name, balance);
+            wallets.put(name, new Wallet(name, balance));
+            index.add(name, balance);
+        }
+
+        for (int step = 0; step < 5000; step++) {
+            String name = "W" + random.nextInt(300);
+            BigDecimal oldBalance = balances.get(name);
+            // Few distinct balances, so most updates land among ties
+            BigDecimal newBalance = BigDecimal.valueOf(random.nextInt(50));
+            index.balanceChanged(wallets.get(name), oldBalance, newBalance);
+            balances.put(name, newBalance);
+
+            if (step % 250 == 0) {
+                assertMatches(balances, index, random);
+            }
+        }
+        assertMatches(balances, index, random);
+    }
+
+    @Test
+    void indexFollowsConcurrentBalanceChanges() throws Exception {
+        WalletRepository repository = new WalletRepository();
+        WalletService walletService = new WalletService(repository);
+        for (int i = 0; i < 100; i++) {
+            walletService.createWallet("W" + i, new BigDecimal("1000"));
+        }
+
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 2000; i++) {
+                    String name = "W" + random.nextInt(100);
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 200));
+                    if (random.nextBoolean()) {
+                        walletService.credit(name, amount, "Test");
+                    } else {
+                        try {
+                            walletService.reserveFunds(name, amount);
+                            walletService.settleReservation(name, amount, "Test");
+                        } catch (WalletException insufficient) {
+                            // Wallet ran dry; nothing changed
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Map<String, BigDecimal> balances = new HashMap<>();
+        for (Wallet wallet : walletService.getAllWallets()) {
+            balances.put(wallet.getAccountHolder(), wallet.getBalance());
+        }
+        assertMatches(balances, repository.getBalanceIndex(), new Random(7));
+    }
+
+    private static void assertMatches(Map<String, BigDecimal> balances, BalanceIndex index, Random random) {
+        TreeSet<Map.Entry<String, BigDecimal>> sorted = new TreeSet<>(BY_BALANCE_THEN_NAME);
+        sorted.addAll(balances.entrySet());
+        List<String> ascending = new ArrayList<>();
+        List<BigDecimal> ascendingBalances = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> e : sorted) {
+            ascending.add(e.getKey());
+            ascendingBalances.add(e.getValue());
+        }
+        List<String> descending = new ArrayList<>(ascending);
+        Collections.reverse(descending);
+
+        assertEquals(balances.size(), index.size());
+        assertEquals(descending, index.descending());
+        assertEquals(descending.subList(0, 10), index.top(10));
+
+        for (int i = 0; i < 20; i++) {
+            BigDecimal a = ascendingBalances.get(random.nextInt(ascendingBalances.size()));
+            BigDecimal b = ascendingBalances.get(random.nextInt(ascendingBalances.size()));
+            BigDecimal min = a.min(b);
+            BigDecimal max = a.max(b);
+            List<String> expected = new ArrayList<>();
+            for (int j = 0; j < ascending.size(); j++) {
+                BigDecimal balance = ascendingBalances.get(j);
+                if (balance.compareTo(min) >= 0 && balance.compareTo(max) <= 0) {
+                    expected.add(ascending.get(j));
+                }
+            }
+            assertEquals(expected, index.range(min, max));
+            assertEquals(expected.size(), index.count(min, max));
+        }
+
+        for (double p : new double[] {0.1, 25, 50, 90, 99.9, 100}) {
+            int rank = (int) Math.ceil(p / 100.0 * ascending.size());
+            BigDecimal expected = ascendingBalances.get(Math.max(1, rank) - 1);
+            assertEquals(0, expected.compareTo(index.percentile(p)), "p" + p);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package test.java.com.wallet.trace;
+
+import main.java.com.wallet.exception.WalletException;
+import main.java.com.wallet.trace.TraceReader;
+import main.java.com.wallet.trace.TraceWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TraceWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void callsAcceptedWhileClosingAreWritten() throws Exception {
+        String[] names = {"alice", "bob"};
+        BigDecimal[] amounts = {new BigDecimal("12.50")};
+        for (int round = 0; round < 50; round++) {
+            Path file = directory.resolve("trace-" + round + ".bin");
+            TraceWriter trace = TraceWriter.open(file);
+            AtomicLong accepted = new AtomicLong();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> callers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread caller = new Thread(() -> {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            trace.append((byte) 1, names, amounts);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (WalletException closed) {
+                        // Refused once the trace is closed
+                    }
+                });
+                callers.add(caller);
+                caller.start();
+            }
+            started.await();
+            trace.close();
+            for (Thread caller : callers) {
+                caller.join();
+            }
+
+            assertEquals(accepted.get(), TraceReader.readAll(file).size(), "round " + round);
+        }
+    }
+}
@@ -22,10 +22,20 @@ public class JwtAuthFilter implements GlobalFilter, Ordered {
             "/auth/login"
     );
 
+    // Served to internal callers of the backing service only, never through the gateway
+    private static final List<String> INTERNAL_PATHS = List.of(
+            "/api/transactions/deposit"
+    );
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain){
         String path = exchange.getRequest().getPath().value();
-        String normalizedPath = path.replaceAll("/+$", "");
+        String normalizedPath = path.replaceAll("/{2,}", "/").replaceAll("/+$", "");
+
+        if(INTERNAL_PATHS.contains(normalizedPath)){
+            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+            return exchange.getResponse().setComplete();
+        }
 
         if(PUBLIC_PATHS.contains(normalizedPath)){
             return chain.filter(exchange)
@@ -0,0 +1,159 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load generator for comparing the services' execution modes.
+ * Single file, no dependencies:
+ *
+ *   java bench/HttpLoadBench.java --url http://localhost:8082/api/transactions/create \
+ *       --body '{"senderId":1,"receiverId":2,"amount":5}' --concurrency 1000 --requests 100000
+ *
+ * Options: --url, --method (GET, or POST when --body is given), --body,
+ * --header Name:Value (repeatable), --concurrency, --requests, --warmup.
+ * {n} in the url, body or a header value is replaced by the request number,
+ * {rand:N} by a uniform id in 1..N and {zipf:N} by an id in 1..N drawn with
+ * probability proportional to 1/id, for skewed account distributions.
+ * Each of the concurrency workers sends its next request as soon as the
+ * previous one is answered; latencies are reported per request.
+ */
+public class HttpLoadBench {
+
+    private static final Pattern RANDOM_ID = Pattern.compile("\\{(rand|zipf):(\\d+)}");
+    private static final Map<Integer, double[]> ZIPF_CDFS = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--header")) {
+                int colon = args[i + 1].indexOf(':');
+                headers.put(args[i + 1].substring(0, colon).trim(), args[i + 1].substring(colon + 1).trim());
+            } else {
+                options.put(args[i].substring(2), args[i + 1]);
+            }
+        }
+        String url = options.get("url");
+        if (url == null) {
+            System.err.println("usage: java HttpLoadBench.java --url <url> [--body <json>] [--concurrency n] [--requests n]");
+            System.exit(1);
+        }
+        String body = options.get("body");
+        String method = options.getOrDefault("method", body != null ? "POST" : "GET");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", String.valueOf(Math.min(requests, 5000))));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+
+        System.out.println("Warming up with " + warmup + " requests...");
+        run(client, method, url, body, headers, concurrency, warmup, 0, false);
+
+        System.out.println("Running " + requests + " " + method + " " + url + " at concurrency " + concurrency + "...");
+        run(client, method, url, body, headers, concurrency, requests, warmup, true);
+    }
+
+    private static void run(HttpClient client, String method, String url, String body, Map<String, String> headers,
+                            int concurrency, int requests, int numberOffset, boolean report) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] workers = new Thread[concurrency];
+
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            workers[w] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    String n = String.valueOf(i + numberOffset);
+                    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(expand(url, n)))
+                            .timeout(Duration.ofSeconds(60))
+                            .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                                    : HttpRequest.BodyPublishers.ofString(expand(body, n)));
+                    if (body != null) request.header("Content-Type", "application/json");
+                    headers.forEach((name, value) -> request.header(name, expand(value, n)));
+
+                    long sentAt = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - sentAt;
+                }
+            }, "bench-" + w);
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long duration = System.nanoTime() - start;
+
+        if (!report) return;
+        Arrays.sort(latencies);
+        System.out.println("  Requests: " + requests + ", Errors: " + errors.get());
+        System.out.println("  Duration: " + (duration / 1_000_000) + " ms");
+        System.out.println("  Throughput: " + String.format("%.0f req/s", requests / (duration / 1_000_000_000.0)));
+        if (requests > 0) {
+            System.out.println("  Latency p50: " + formatMillis(percentile(latencies, 50)));
+            System.out.println("  Latency p99: " + formatMillis(percentile(latencies, 99)));
+            System.out.println("  Latency p99.9: " + formatMillis(percentile(latencies, 99.9)));
+            System.out.println("  Latency max: " + formatMillis(latencies[latencies.length - 1]));
+        }
+    }
+
+    private static String expand(String template, String n) {
+        String expanded = template.replace("{n}", n);
+        if (expanded.indexOf('{') < 0) return expanded;
+
+        Matcher m = RANDOM_ID.matcher(expanded);
+        StringBuilder out = new StringBuilder();
+        while (m.find()) {
+            int max = Integer.parseInt(m.group(2));
+            long id = m.group(1).equals("rand") ? ThreadLocalRandom.current().nextInt(max) + 1 : zipf(max);
+            m.appendReplacement(out, String.valueOf(id));
+        }
+        m.appendTail(out);
+        return out.toString();
+    }
+
+    private static int zipf(int max) {
+        double[] cdf = ZIPF_CDFS.computeIfAbsent(max, k -> {
+            double[] c = new double[k];
+            double sum = 0;
+            for (int i = 0; i < k; i++) {
+                sum += 1.0 / (i + 1);
+                c[i] = sum;
+            }
+            for (int i = 0; i < k; i++) {
+                c[i] /= sum;
+            }
+            return c;
+        });
+        int index = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+}
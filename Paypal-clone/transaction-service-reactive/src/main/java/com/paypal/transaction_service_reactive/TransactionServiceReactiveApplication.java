@@ -0,0 +1,13 @@
+package com.paypal.transaction_service_reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class TransactionServiceReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(TransactionServiceReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.paypal.transaction_service_reactive.config;
+
+import com.paypal.transaction_service_reactive.entity.Transaction;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+@Configuration
+public class KafkaConfig {
+
+    // Producer settings come from spring.kafka.producer.*, as for KafkaTemplate
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, Transaction> kafkaSender(KafkaProperties kafkaProperties) {
+        SenderOptions<String, Transaction> options =
+                SenderOptions.create(kafkaProperties.buildProducerProperties(null));
+        return KafkaSender.create(options);
+    }
+}
@@ -0,0 +1,30 @@
+package com.paypal.transaction_service_reactive.controller;
+
+import com.paypal.transaction_service_reactive.entity.Transaction;
+import com.paypal.transaction_service_reactive.service.TransactionService;
+import jakarta.validation.Valid;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/transactions/")
+public class TransactionController {
+
+    private final TransactionService service;
+
+    public TransactionController(TransactionService service) {
+        this.service = service;
+    }
+
+    @PostMapping("/create")
+    public Mono<Transaction> create(@Valid @RequestBody Transaction transaction) {
+        return service.createTransaction(transaction);
+    }
+
+    // A JSON array by default; Accept: application/x-ndjson streams row by row
+    @GetMapping("/all")
+    public Flux<Transaction> getAll() {
+        return service.getAllTransactions();
+    }
+}
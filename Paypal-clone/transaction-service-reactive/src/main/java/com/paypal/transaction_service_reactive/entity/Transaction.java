@@ -0,0 +1,91 @@
+package com.paypal.transaction_service_reactive.entity;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Same row and JSON shape as the blocking service's Transaction; the table
+ * is created by schema.sql since R2DBC has no DDL generation.
+ */
+@Table("transaction")
+public class Transaction {
+
+    @Id
+    private Long id;
+
+    @NotNull
+    private Long senderId;
+
+    @NotNull
+    private Long receiverId;
+
+    @NotNull
+    @Positive(message = "Amount must be positive")
+    private Double amount;
+
+    private LocalDateTime timestamp;
+
+    private String status;
+
+    public Transaction() {}
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSenderId() {
+        return senderId;
+    }
+    public void setSenderId(Long senderId) {
+        this.senderId = senderId;
+    }
+
+    public Long getReceiverId() {
+        return receiverId;
+    }
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction{" +
+                "id=" + id +
+                ", senderId=" + senderId +
+                ", receiverId=" + receiverId +
+                ", amount=" + amount +
+                ", timestamp=" + timestamp +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
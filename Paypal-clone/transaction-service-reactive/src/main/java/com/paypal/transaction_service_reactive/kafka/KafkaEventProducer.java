@@ -0,0 +1,48 @@
+package com.paypal.transaction_service_reactive.kafka;
+
+import com.paypal.transaction_service_reactive.entity.Transaction;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+
+/**
+ * Publishes to the same topic and JSON payload as the blocking service,
+ * keyed by receiver like its default partition-key, so its consumers
+ * cannot tell the two apart.
+ */
+@Component
+public class KafkaEventProducer {
+
+    private static final String TOPIC = "txn-initiated";
+
+    private final KafkaSender<String, Transaction> kafkaSender;
+
+    public KafkaEventProducer(KafkaSender<String, Transaction> kafkaSender) {
+        this.kafkaSender = kafkaSender;
+    }
+
+    /**
+     * Completes with the record metadata; failures are logged and swallowed
+     */
+    public Mono<RecordMetadata> sendTransactionEvent(String key, Transaction transaction) {
+        SenderRecord<String, Transaction, String> record =
+                SenderRecord.create(new ProducerRecord<>(TOPIC, key, transaction), key);
+
+        return kafkaSender.send(Mono.just(record))
+                .next()
+                .map(result -> {
+                    if (result.exception() != null) {
+                        throw new IllegalStateException(result.exception());
+                    }
+                    return result.recordMetadata();
+                })
+                .doOnNext(metadata -> System.out.println("✅ Kafka message sent successfully! Topic: " + metadata.topic() + ", Partition: " + metadata.partition() + ", Offset: " + metadata.offset()))
+                .onErrorResume(ex -> {
+                    System.err.println("❌ Failed to send Kafka message: " + ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
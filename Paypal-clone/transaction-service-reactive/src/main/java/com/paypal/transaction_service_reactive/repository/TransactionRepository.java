@@ -0,0 +1,9 @@
+package com.paypal.transaction_service_reactive.repository;
+
+import com.paypal.transaction_service_reactive.entity.Transaction;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TransactionRepository extends ReactiveCrudRepository<Transaction, Long> {
+}
@@ -0,0 +1,12 @@
+package com.paypal.transaction_service_reactive.service;
+
+import com.paypal.transaction_service_reactive.entity.Transaction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface TransactionService {
+
+    Mono<Transaction> createTransaction(Transaction transaction);
+
+    Flux<Transaction> getAllTransactions();
+}
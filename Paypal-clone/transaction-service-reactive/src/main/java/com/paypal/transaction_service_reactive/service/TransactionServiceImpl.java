@@ -0,0 +1,44 @@
+package com.paypal.transaction_service_reactive.service;
+
+import com.paypal.transaction_service_reactive.entity.Transaction;
+import com.paypal.transaction_service_reactive.kafka.KafkaEventProducer;
+import com.paypal.transaction_service_reactive.repository.TransactionRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Service
+public class TransactionServiceImpl implements TransactionService {
+
+    private final TransactionRepository repository;
+    private final KafkaEventProducer kafkaEventProducer;
+
+    public TransactionServiceImpl(TransactionRepository repository, KafkaEventProducer kafkaEventProducer) {
+        this.repository = repository;
+        this.kafkaEventProducer = kafkaEventProducer;
+    }
+
+    @Override
+    public Mono<Transaction> createTransaction(Transaction request) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderId(request.getSenderId());
+        transaction.setReceiverId(request.getReceiverId());
+        transaction.setAmount(request.getAmount());
+        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setStatus("SUCCESS");
+
+        // The event is published once the row is committed, but the response
+        // does not wait for the broker, as in the blocking service before the outbox
+        return repository.save(transaction)
+                .doOnNext(saved -> kafkaEventProducer
+                        .sendTransactionEvent(String.valueOf(saved.getReceiverId()), saved)
+                        .subscribe());
+    }
+
+    @Override
+    public Flux<Transaction> getAllTransactions() {
+        return repository.findAll();
+    }
+}
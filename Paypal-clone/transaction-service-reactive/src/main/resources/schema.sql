@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS transaction (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    sender_id   BIGINT           NOT NULL,
+    receiver_id BIGINT           NOT NULL,
+    amount      DOUBLE PRECISION NOT NULL,
+    timestamp   TIMESTAMP        NOT NULL,
+    status      VARCHAR(255)     NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_transaction_timestamp_id ON transaction (timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_transaction_sender_timestamp ON transaction (sender_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_transaction_receiver_timestamp ON transaction (receiver_id, timestamp);
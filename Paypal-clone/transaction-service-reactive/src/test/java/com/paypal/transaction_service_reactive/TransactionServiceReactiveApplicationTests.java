@@ -0,0 +1,13 @@
+package com.paypal.transaction_service_reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class TransactionServiceReactiveApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.paypal.transaction_service.analytics;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Count and sum per account id, for group-by scans.
+ * Open addressing over primitive arrays, so adding a row allocates nothing.
+ */
+final class AccountTotals {
+
+    // No account has this id
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] accountIds;
+    private long[] counts;
+    private double[] sums;
+    private int size;
+
+    AccountTotals() {
+        allocate(1024);
+    }
+
+    void add(long accountId, double amount) {
+        int slot = slotOf(accountIds, accountId);
+        if (accountIds[slot] == EMPTY) {
+            if (size * 2 >= accountIds.length) {
+                grow();
+                slot = slotOf(accountIds, accountId);
+            }
+            accountIds[slot] = accountId;
+            size++;
+        }
+        counts[slot]++;
+        sums[slot] += amount;
+    }
+
+    /**
+     * @return slots of the limit accounts with the largest sums, largest first
+     */
+    int[] top(int limit) {
+        PriorityQueue<Integer> smallest = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(sums[a], sums[b]));
+        for (int slot = 0; slot < accountIds.length; slot++) {
+            if (accountIds[slot] == EMPTY) continue;
+            if (smallest.size() < limit) {
+                smallest.add(slot);
+            } else if (sums[slot] > sums[smallest.peek()]) {
+                smallest.poll();
+                smallest.add(slot);
+            }
+        }
+        int[] top = new int[smallest.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = smallest.poll();
+        }
+        return top;
+    }
+
+    long accountId(int slot) {
+        return accountIds[slot];
+    }
+
+    long count(int slot) {
+        return counts[slot];
+    }
+
+    double sum(int slot) {
+        return sums[slot];
+    }
+
+    private void grow() {
+        long[] oldIds = accountIds;
+        long[] oldCounts = counts;
+        double[] oldSums = sums;
+        allocate(oldIds.length * 2);
+        for (int old = 0; old < oldIds.length; old++) {
+            if (oldIds[old] == EMPTY) continue;
+            int slot = slotOf(accountIds, oldIds[old]);
+            accountIds[slot] = oldIds[old];
+            counts[slot] = oldCounts[old];
+            sums[slot] = oldSums[old];
+        }
+    }
+
+    private void allocate(int capacity) {
+        accountIds = new long[capacity];
+        Arrays.fill(accountIds, EMPTY);
+        counts = new long[capacity];
+        sums = new double[capacity];
+    }
+
+    private static int slotOf(long[] accountIds, long accountId) {
+        int mask = accountIds.length - 1;
+        // Fibonacci hashing, so consecutive ids do not cluster
+        int slot = (int) ((accountId * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (accountIds[slot] != EMPTY && accountIds[slot] != accountId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,161 @@
+package com.paypal.transaction_service.analytics;
+
+/**
+ * A fixed block of rows held as parallel primitive columns.
+ * Appended by a single writer at a time; readers take {@link #size()} once
+ * and scan below it without locking, since the volatile size is written
+ * after the row it publishes.
+ */
+final class ColumnChunk {
+
+    static final int CAPACITY = 1 << 16;
+
+    private final long[] timestamps = new long[CAPACITY];
+    private final long[] senderIds = new long[CAPACITY];
+    private final long[] receiverIds = new long[CAPACITY];
+    private final double[] amounts = new double[CAPACITY];
+    // Rows are appended roughly, not strictly, in time order; these bound them for pruning
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private double minAmount = Double.POSITIVE_INFINITY;
+    private double maxAmount = Double.NEGATIVE_INFINITY;
+    private volatile int size;
+
+    /**
+     * Callers hold the owner's lock
+     *
+     * @return false if the chunk is full
+     */
+    boolean append(long timestamp, long senderId, long receiverId, double amount) {
+        int row = size;
+        if (row == CAPACITY) return false;
+        timestamps[row] = timestamp;
+        senderIds[row] = senderId;
+        receiverIds[row] = receiverId;
+        amounts[row] = amount;
+        if (timestamp < minTimestamp) minTimestamp = timestamp;
+        if (timestamp > maxTimestamp) maxTimestamp = timestamp;
+        if (amount < minAmount) minAmount = amount;
+        if (amount > maxAmount) maxAmount = amount;
+        size = row + 1;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * Adds the amounts of rows in [from, to) to the summary
+     */
+    void summarize(long from, long to, Summary summary) {
+        int rows = size;
+        if (rows == 0 || maxTimestamp < from || minTimestamp >= to) return;
+
+        if (rows == CAPACITY && minTimestamp >= from && maxTimestamp < to) {
+            // A full chunk no longer changes, so its min and max kept on append
+            // hold; four independent accumulators keep the adds from waiting on each other
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int row = 0;
+            for (; row + 3 < rows; row += 4) {
+                s0 += amounts[row];
+                s1 += amounts[row + 1];
+                s2 += amounts[row + 2];
+                s3 += amounts[row + 3];
+            }
+            for (; row < rows; row++) {
+                s0 += amounts[row];
+            }
+            summary.add(rows, (s0 + s1) + (s2 + s3), minAmount, maxAmount);
+            return;
+        }
+
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps[row];
+            if (timestamp >= from && timestamp < to) {
+                double amount = amounts[row];
+                count++;
+                sum += amount;
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+            }
+        }
+        summary.add(count, sum, min, max);
+    }
+
+    /**
+     * Copies the amounts of rows in [from, to) into out from offset, looking
+     * at no more than room rows
+     *
+     * @return the offset after the last amount copied
+     */
+    int collectAmounts(long from, long to, double[] out, int offset, int room) {
+        int rows = Math.min(size, room);
+        if (rows == 0 || maxTimestamp < from || minTimestamp >= to) return offset;
+        if (minTimestamp >= from && maxTimestamp < to) {
+            System.arraycopy(amounts, 0, out, offset, rows);
+            return offset + rows;
+        }
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps[row];
+            if (timestamp >= from && timestamp < to) {
+                out[offset++] = amounts[row];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Adds rows in [from, to) to the bucket starting origin + i * bucketMillis
+     */
+    void bucket(long from, long to, long origin, long bucketMillis, long[] counts, double[] sums) {
+        int rows = size;
+        if (rows == 0 || maxTimestamp < from || minTimestamp >= to) return;
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps[row];
+            if (timestamp >= from && timestamp < to) {
+                int bucket = (int) ((timestamp - origin) / bucketMillis);
+                counts[bucket]++;
+                sums[bucket] += amounts[row];
+            }
+        }
+    }
+
+    /**
+     * Adds rows in [from, to) to the totals of their sender, or receiver
+     */
+    void groupByAccount(long from, long to, boolean bySender, AccountTotals totals) {
+        int rows = size;
+        if (rows == 0 || maxTimestamp < from || minTimestamp >= to) return;
+        long[] accountIds = bySender ? senderIds : receiverIds;
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps[row];
+            if (timestamp >= from && timestamp < to) {
+                totals.add(accountIds[row], amounts[row]);
+            }
+        }
+    }
+
+    static final class Summary {
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        void add(long count, double sum, double min, double max) {
+            if (count == 0) return;
+            this.count += count;
+            this.sum += sum;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+    }
+}
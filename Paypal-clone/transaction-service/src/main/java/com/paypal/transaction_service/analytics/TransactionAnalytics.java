@@ -0,0 +1,256 @@
+package com.paypal.transaction_service.analytics;
+
+import com.paypal.transaction_service.dto.AccountVolume;
+import com.paypal.transaction_service.dto.AmountPercentiles;
+import com.paypal.transaction_service.dto.AnalyticsSummary;
+import com.paypal.transaction_service.dto.VolumeBucket;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.TransactionRepository;
+import com.paypal.transaction_service.service.LedgerService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Recent successful transfers held in memory as columns, for dashboards
+ * that would otherwise run aggregates against the transaction table.
+ * - TransactionWriter appends each batch once it commits; deposits and
+ *   failed transfers moved no money between accounts and are left out
+ * - Rows go into fixed chunks of primitive arrays (timestamp, sender,
+ *   receiver, amount); a full chunk is never written again, and whole chunks
+ *   are dropped once past retention-hours or beyond max-rows
+ * - Queries scan the chunks without locking, skipping those outside the
+ *   time range and taking whole-chunk shortcuts for those inside it
+ * - On startup the retention window is read back from the table
+ * Ranges are [from, to); from defaults to the start of the retention
+ * window and to to now.
+ */
+@Component
+public class TransactionAnalytics {
+
+    private static final int MAX_BUCKETS = 10_000;
+
+    private final TransactionRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTemplate;
+    private final boolean enabled;
+    private final long retentionMillis;
+    private final int maxChunks;
+    private volatile ColumnChunk[] chunks = new ColumnChunk[0];
+
+    public TransactionAnalytics(TransactionRepository repository,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${transaction.analytics.enabled:true}") boolean enabled,
+                                @Value("${transaction.analytics.retention-hours:24}") int retentionHours,
+                                @Value("${transaction.analytics.max-rows:1048576}") int maxRows) {
+        if (retentionHours < 1 || maxRows < 1) {
+            throw new IllegalArgumentException("transaction.analytics.retention-hours and max-rows must be positive");
+        }
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.retentionMillis = retentionHours * 3_600_000L;
+        this.maxChunks = (maxRows + ColumnChunk.CAPACITY - 1) / ColumnChunk.CAPACITY;
+        Gauge.builder("transaction.analytics.rows", this, TransactionAnalytics::rows)
+                .description("Transfers held by the in-memory analytics store")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) return;
+        LocalDateTime from = fromMillis(toMillis(LocalDateTime.now()) - retentionMillis);
+        int[] loaded = {0};
+        readOnlyTemplate.executeWithoutResult(status -> {
+            try (Stream<Transaction> rows = repository.streamRange(from, LocalDateTime.now().plusMinutes(1))) {
+                Iterator<Transaction> it = rows.iterator();
+                while (it.hasNext()) {
+                    Transaction transaction = it.next();
+                    if (append(transaction)) loaded[0]++;
+                    entityManager.detach(transaction);
+                }
+            }
+        });
+        System.out.println("📊 Loaded " + loaded[0] + " transfers into analytics");
+    }
+
+    /**
+     * Appends the committed transactions that moved money between accounts
+     */
+    public synchronized void record(List<Transaction> transactions) {
+        if (!enabled) return;
+        for (Transaction transaction : transactions) {
+            append(transaction);
+        }
+    }
+
+    public AnalyticsSummary summary(LocalDateTime from, LocalDateTime to) {
+        long start = startOf(from);
+        long end = endOf(to, start);
+        ColumnChunk.Summary summary = new ColumnChunk.Summary();
+        for (ColumnChunk chunk : chunks) {
+            chunk.summarize(start, end, summary);
+        }
+        boolean any = summary.count > 0;
+        return new AnalyticsSummary(fromMillis(start), fromMillis(end), summary.count, summary.sum,
+                any ? summary.min : null, any ? summary.max : null, any ? summary.sum / summary.count : null);
+    }
+
+    /**
+     * @param percentiles each in (0, 100]
+     */
+    public AmountPercentiles percentiles(LocalDateTime from, LocalDateTime to, double[] percentiles) {
+        long start = startOf(from);
+        long end = endOf(to, start);
+        for (double p : percentiles) {
+            if (!(p > 0 && p <= 100)) {
+                throw new IllegalArgumentException("percentiles must be in (0, 100]");
+            }
+        }
+        ColumnChunk[] snapshot = chunks;
+        int capacity = 0;
+        for (ColumnChunk chunk : snapshot) {
+            capacity += chunk.size();
+        }
+        double[] amounts = new double[capacity];
+        int count = 0;
+        for (ColumnChunk chunk : snapshot) {
+            // Chunks only grow, so rows appended since sizing the array are left out
+            count = chunk.collectAmounts(start, end, amounts, count, capacity - count);
+        }
+        Arrays.sort(amounts, 0, count);
+
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double p : percentiles) {
+            if (count == 0) break;
+            int rank = (int) Math.ceil(p / 100 * count);
+            values.put("p" + BigDecimal.valueOf(p).stripTrailingZeros().toPlainString(), amounts[Math.max(rank, 1) - 1]);
+        }
+        return new AmountPercentiles(fromMillis(start), fromMillis(end), count, values);
+    }
+
+    /**
+     * Count and sum per bucketSeconds, aligned to the epoch; empty buckets included
+     */
+    public List<VolumeBucket> volume(LocalDateTime from, LocalDateTime to, int bucketSeconds) {
+        long start = startOf(from);
+        long end = endOf(to, start);
+        if (bucketSeconds < 1) {
+            throw new IllegalArgumentException("bucketSeconds must be positive");
+        }
+        long bucketMillis = bucketSeconds * 1000L;
+        long origin = Math.floorDiv(start, bucketMillis) * bucketMillis;
+        long buckets = Math.floorDiv(end - 1 - origin, bucketMillis) + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("At most " + MAX_BUCKETS + " buckets; narrow the range or widen bucketSeconds");
+        }
+
+        long[] counts = new long[(int) buckets];
+        double[] sums = new double[(int) buckets];
+        for (ColumnChunk chunk : chunks) {
+            chunk.bucket(start, end, origin, bucketMillis, counts, sums);
+        }
+        List<VolumeBucket> series = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            series.add(new VolumeBucket(fromMillis(origin + i * bucketMillis), counts[i], sums[i]));
+        }
+        return series;
+    }
+
+    /**
+     * The limit accounts that sent, or received, the largest amounts
+     */
+    public List<AccountVolume> topAccounts(LocalDateTime from, LocalDateTime to, boolean bySender, int limit) {
+        long start = startOf(from);
+        long end = endOf(to, start);
+        AccountTotals totals = new AccountTotals();
+        for (ColumnChunk chunk : chunks) {
+            chunk.groupByAccount(start, end, bySender, totals);
+        }
+        List<AccountVolume> top = new ArrayList<>(limit);
+        for (int slot : totals.top(limit)) {
+            top.add(new AccountVolume(totals.accountId(slot), totals.count(slot), totals.sum(slot)));
+        }
+        return top;
+    }
+
+    private long rows() {
+        long rows = 0;
+        for (ColumnChunk chunk : chunks) {
+            rows += chunk.size();
+        }
+        return rows;
+    }
+
+    // Called with the lock held, or before the writers start
+    private boolean append(Transaction transaction) {
+        if (!LedgerService.SUCCESS.equals(transaction.getStatus()) || transaction.getTimestamp() == null
+                || transaction.getSenderId() == LedgerService.EXTERNAL_ACCOUNT_ID) {
+            return false;
+        }
+        long timestamp = toMillis(transaction.getTimestamp());
+        ColumnChunk[] current = chunks;
+        if (current.length == 0
+                || !current[current.length - 1].append(timestamp, transaction.getSenderId(), transaction.getReceiverId(), transaction.getAmount())) {
+            addChunk().append(timestamp, transaction.getSenderId(), transaction.getReceiverId(), transaction.getAmount());
+        }
+        return true;
+    }
+
+    private ColumnChunk addChunk() {
+        long cutoff = toMillis(LocalDateTime.now()) - retentionMillis;
+        List<ColumnChunk> kept = new ArrayList<>(maxChunks);
+        for (ColumnChunk chunk : chunks) {
+            if (chunk.maxTimestamp() >= cutoff) kept.add(chunk);
+        }
+        while (kept.size() >= maxChunks) {
+            kept.remove(0);
+        }
+        ColumnChunk chunk = new ColumnChunk();
+        kept.add(chunk);
+        chunks = kept.toArray(new ColumnChunk[0]);
+        return chunk;
+    }
+
+    private long startOf(LocalDateTime from) {
+        return from != null ? toMillis(from) : toMillis(LocalDateTime.now()) - retentionMillis;
+    }
+
+    private static long endOf(LocalDateTime to, long start) {
+        long end = to != null ? toMillis(to) : toMillis(LocalDateTime.now());
+        if (end <= start) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return end;
+    }
+
+    // Wall-clock millis, read as UTC like the archive's timestamps
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1000 + timestamp.getNano() / 1_000_000;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
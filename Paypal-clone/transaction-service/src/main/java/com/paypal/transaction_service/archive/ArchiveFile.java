@@ -0,0 +1,234 @@
+package com.paypal.transaction_service.archive;
+
+import com.paypal.transaction_service.entity.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk format of one archived month.
+ * An uncompressed header (magic, version, id of the database it was archived
+ * from, row count, id range) is followed by
+ * a gzip stream holding each column in turn, rows sorted by (timestamp, id):
+ * - timestamps as varint deltas of epoch microseconds
+ * - ids as zigzag varint deltas
+ * - sender and receiver ids as zigzag varints
+ * - amounts as raw doubles
+ * - statuses as a string dictionary followed by one code byte per row
+ * Storing a column's values together is what lets gzip shrink them well.
+ */
+final class ArchiveFile {
+
+    private static final int MAGIC = 0x54584331; // "TXC1"
+    private static final int VERSION = 2;
+
+    private ArchiveFile() {
+    }
+
+    static Header readHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64))) {
+            return readHeader(in, path);
+        }
+    }
+
+    static ArchivedMonth read(Path path, YearMonth month) throws IOException {
+        try (DataInputStream raw = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            Header header = readHeader(raw, path);
+            int count = header.count;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(raw, 65536)));
+
+            long[] timestamps = new long[count];
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += readVarLong(in);
+                timestamps[i] = previous;
+            }
+            long[] ids = new long[count];
+            previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += unzigzag(readVarLong(in));
+                ids[i] = previous;
+            }
+            long[] senderIds = new long[count];
+            for (int i = 0; i < count; i++) {
+                senderIds[i] = unzigzag(readVarLong(in));
+            }
+            long[] receiverIds = new long[count];
+            for (int i = 0; i < count; i++) {
+                receiverIds[i] = unzigzag(readVarLong(in));
+            }
+            double[] amounts = new double[count];
+            for (int i = 0; i < count; i++) {
+                amounts[i] = in.readDouble();
+            }
+            String[] statuses = new String[(int) readVarLong(in)];
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = in.readUTF();
+            }
+            byte[] statusCodes = new byte[count];
+            in.readFully(statusCodes);
+
+            return new ArchivedMonth(month, ids, timestamps, senderIds, receiverIds, amounts, statuses, statusCodes);
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a transaction archive: " + path);
+        }
+        int version = in.readInt();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported archive version " + version + ": " + path);
+        }
+        String databaseId = version == 1 ? null : in.readUTF();
+        return new Header(databaseId, in.readInt(), in.readLong(), in.readLong());
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static final class Header {
+        // Null in version 1 files, written before databases had an id
+        final String databaseId;
+        final int count;
+        final long minId;
+        final long maxId;
+
+        Header(String databaseId, int count, long minId, long maxId) {
+            this.databaseId = databaseId;
+            this.count = count;
+            this.minId = minId;
+            this.maxId = maxId;
+        }
+    }
+
+    /**
+     * Collects rows in (timestamp, id) order, one buffer per column.
+     * A month's columns are held in memory until written.
+     */
+    static final class Writer {
+        private final ByteArrayOutputStream timestamps = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream senderIds = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream receiverIds = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream amounts = new ByteArrayOutputStream();
+        private final DataOutputStream amountsOut = new DataOutputStream(amounts);
+        private final ByteArrayOutputStream statusCodes = new ByteArrayOutputStream();
+        private final Map<String, Integer> statusDictionary = new HashMap<>();
+        private final List<String> statuses = new ArrayList<>();
+        private int count;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+        private long previousTimestamp;
+        private long previousId;
+
+        void add(Transaction transaction) throws IOException {
+            long timestamp = toMicros(transaction.getTimestamp());
+            long id = transaction.getId();
+
+            writeVarLong(timestamps, timestamp - previousTimestamp);
+            writeVarLong(ids, zigzag(id - previousId));
+            writeVarLong(senderIds, zigzag(transaction.getSenderId()));
+            writeVarLong(receiverIds, zigzag(transaction.getReceiverId()));
+            amountsOut.writeDouble(transaction.getAmount());
+
+            Integer code = statusDictionary.get(transaction.getStatus());
+            if (code == null) {
+                if (statuses.size() == 256) throw new IOException("More than 256 distinct statuses");
+                code = statuses.size();
+                statusDictionary.put(transaction.getStatus(), code);
+                statuses.add(transaction.getStatus());
+            }
+            statusCodes.write(code);
+
+            previousTimestamp = timestamp;
+            previousId = id;
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            count++;
+        }
+
+        int size() {
+            return count;
+        }
+
+        void writeTo(Path path, String databaseId) throws IOException {
+            try (OutputStream file = Files.newOutputStream(path)) {
+                DataOutputStream header = new DataOutputStream(file);
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeUTF(databaseId);
+                header.writeInt(count);
+                header.writeLong(minId);
+                header.writeLong(maxId);
+                header.flush();
+
+                GZIPOutputStream gzip = new GZIPOutputStream(file, 65536);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, 65536));
+                timestamps.writeTo(out);
+                ids.writeTo(out);
+                senderIds.writeTo(out);
+                receiverIds.writeTo(out);
+                amounts.writeTo(out);
+                writeVarLong(out, statuses.size());
+                for (String status : statuses) {
+                    out.writeUTF(status);
+                }
+                statusCodes.writeTo(out);
+                out.flush();
+                gzip.finish();
+            }
+        }
+    }
+}
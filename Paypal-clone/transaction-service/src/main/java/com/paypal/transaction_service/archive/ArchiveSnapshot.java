@@ -0,0 +1,151 @@
+package com.paypal.transaction_service.archive;
+
+import com.paypal.transaction_service.dto.TransactionHistoryItem;
+import com.paypal.transaction_service.entity.Transaction;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * The archived months at one point in time.
+ * Every archived transaction is older than {@link #getBoundary()}, and
+ * readers take hot-table rows only from the boundary on, so a query that
+ * combines both sources from one snapshot sees each transaction once.
+ */
+public final class ArchiveSnapshot implements Iterable<Transaction> {
+
+    static final ArchiveSnapshot EMPTY = new ArchiveSnapshot(Collections.emptyList(), null);
+
+    private final List<MonthFile> months;
+    private final Function<MonthFile, ArchivedMonth> loader;
+
+    ArchiveSnapshot(List<MonthFile> months, Function<MonthFile, ArchivedMonth> loader) {
+        this.months = months;
+        this.loader = loader;
+    }
+
+    /**
+     * Start of the first month that is not archived, or null if nothing is
+     */
+    public LocalDateTime getBoundary() {
+        return months.isEmpty() ? null : months.get(months.size() - 1).end();
+    }
+
+    public boolean isEmpty() {
+        return months.isEmpty();
+    }
+
+    List<MonthFile> months() {
+        return months;
+    }
+
+    /**
+     * Archived transactions after the (timestamp, id) cursor, in that order
+     *
+     * @param afterTimestamp null to start from the oldest
+     */
+    public List<Transaction> findPageAfter(LocalDateTime afterTimestamp, Long afterId, int limit) {
+        List<Transaction> page = new ArrayList<>(Math.min(limit, 1024));
+        for (MonthFile file : months) {
+            if (page.size() >= limit) break;
+            if (afterTimestamp != null && !file.end().isAfter(afterTimestamp)) continue;
+
+            ArchivedMonth month = loader.apply(file);
+            int row = afterTimestamp == null ? 0 : month.rowAfter(afterTimestamp, afterId);
+            for (; row < month.size() && page.size() < limit; row++) {
+                page.add(month.get(row));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Every archived transaction in (timestamp, id) order, one month decoded at a time
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private int file;
+            private ArchivedMonth month;
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                while (month == null || row >= month.size()) {
+                    if (file >= months.size()) return false;
+                    month = loader.apply(months.get(file++));
+                    row = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return month.get(row++);
+            }
+        };
+    }
+
+    /**
+     * Newest first, within [from, to); months outside the range are not read
+     */
+    public List<TransactionHistoryItem> findHistory(long userId, boolean sent, boolean received,
+                                                    LocalDateTime from, LocalDateTime to, int limit) {
+        List<TransactionHistoryItem> history = new ArrayList<>();
+        for (int i = months.size() - 1; i >= 0; i--) {
+            MonthFile file = months.get(i);
+            if (!file.start().isBefore(to)) continue;
+            if (!file.end().isAfter(from)) break;
+
+            ArchivedMonth month = loader.apply(file);
+            if (month.collectHistory(userId, sent, received,
+                    month.rowAtOrAfter(from), month.rowAtOrAfter(to), history, limit)) {
+                break;
+            }
+        }
+        return history;
+    }
+
+    /**
+     * @return the archived transaction, or null; only months whose id range covers it are read
+     */
+    public Transaction findById(long id) {
+        for (int i = months.size() - 1; i >= 0; i--) {
+            MonthFile file = months.get(i);
+            if (id < file.header.minId || id > file.header.maxId) continue;
+
+            ArchivedMonth month = loader.apply(file);
+            int row = month.rowOf(id);
+            if (row >= 0) return month.get(row);
+        }
+        return null;
+    }
+
+    static final class MonthFile {
+        final YearMonth month;
+        final Path path;
+        final ArchiveFile.Header header;
+
+        MonthFile(YearMonth month, Path path, ArchiveFile.Header header) {
+            this.month = month;
+            this.path = path;
+            this.header = header;
+        }
+
+        LocalDateTime start() {
+            return month.atDay(1).atStartOfDay();
+        }
+
+        LocalDateTime end() {
+            return month.plusMonths(1).atDay(1).atStartOfDay();
+        }
+    }
+}
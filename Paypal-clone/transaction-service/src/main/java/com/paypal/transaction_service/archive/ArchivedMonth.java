@@ -0,0 +1,140 @@
+package com.paypal.transaction_service.archive;
+
+import com.paypal.transaction_service.dto.TransactionHistoryItem;
+import com.paypal.transaction_service.entity.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decoded columns of one archived month, rows sorted by (timestamp, id).
+ * Immutable apart from the id index, built on the first lookup by id.
+ */
+final class ArchivedMonth {
+
+    private final YearMonth month;
+    private final long[] ids;
+    private final long[] timestamps;
+    private final long[] senderIds;
+    private final long[] receiverIds;
+    private final double[] amounts;
+    private final String[] statuses;
+    private final byte[] statusCodes;
+    // Row numbers ordered by id, parallel to sortedIds
+    private volatile long[] sortedIds;
+    private volatile int[] rowsById;
+
+    ArchivedMonth(YearMonth month, long[] ids, long[] timestamps, long[] senderIds, long[] receiverIds,
+                  double[] amounts, String[] statuses, byte[] statusCodes) {
+        this.month = month;
+        this.ids = ids;
+        this.timestamps = timestamps;
+        this.senderIds = senderIds;
+        this.receiverIds = receiverIds;
+        this.amounts = amounts;
+        this.statuses = statuses;
+        this.statusCodes = statusCodes;
+    }
+
+    YearMonth getMonth() {
+        return month;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    Transaction get(int row) {
+        Transaction transaction = new Transaction();
+        transaction.setId(ids[row]);
+        transaction.setSenderId(senderIds[row]);
+        transaction.setReceiverId(receiverIds[row]);
+        transaction.setAmount(amounts[row]);
+        transaction.setTimestamp(ArchiveFile.fromMicros(timestamps[row]));
+        transaction.setStatus(statuses[statusCodes[row] & 0xFF]);
+        return transaction;
+    }
+
+    /**
+     * First row after (timestamp, id) in sort order
+     */
+    int rowAfter(LocalDateTime timestamp, long id) {
+        long micros = ArchiveFile.toMicros(timestamp);
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < micros || (timestamps[mid] == micros && ids[mid] <= id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First row with a timestamp at or after the given one
+     */
+    int rowAtOrAfter(LocalDateTime timestamp) {
+        return rowAfter(timestamp, Long.MIN_VALUE);
+    }
+
+    /**
+     * Adds the rows in [fromRow, toRow) that involve the account, newest first
+     *
+     * @return true once out holds limit items
+     */
+    boolean collectHistory(long userId, boolean sent, boolean received, int fromRow, int toRow,
+                           List<TransactionHistoryItem> out, int limit) {
+        for (int row = toRow - 1; row >= fromRow && out.size() < limit; row--) {
+            if (sent && senderIds[row] == userId) {
+                out.add(historyItem(row, TransactionHistoryItem.SENT, receiverIds[row]));
+            } else if (received && receiverIds[row] == userId) {
+                out.add(historyItem(row, TransactionHistoryItem.RECEIVED, senderIds[row]));
+            }
+        }
+        return out.size() >= limit;
+    }
+
+    /**
+     * @return the row holding the id, or -1
+     */
+    int rowOf(long id) {
+        long[] sorted = sortedIds;
+        int[] rows = rowsById;
+        if (sorted == null) {
+            synchronized (this) {
+                if (sortedIds == null) buildIdIndex();
+                sorted = sortedIds;
+                rows = rowsById;
+            }
+        }
+        int index = Arrays.binarySearch(sorted, id);
+        return index >= 0 ? rows[index] : -1;
+    }
+
+    private TransactionHistoryItem historyItem(int row, String direction, long counterpartyId) {
+        return new TransactionHistoryItem(ids[row], direction, counterpartyId, amounts[row],
+                ArchiveFile.fromMicros(timestamps[row]), statuses[statusCodes[row] & 0xFF]);
+    }
+
+    private void buildIdIndex() {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+        long[] sorted = new long[ids.length];
+        int[] rows = new int[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            rows[i] = order[i];
+            sorted[i] = ids[order[i]];
+        }
+        // rowsById first: readers check sortedIds
+        rowsById = rows;
+        sortedIds = sorted;
+    }
+}
@@ -0,0 +1,229 @@
+package com.paypal.transaction_service.archive;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypal.transaction_service.entity.DatabaseIdentity;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.DatabaseIdentityRepository;
+import com.paypal.transaction_service.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage for transactions past the retention age.
+ * - The transaction table only keeps the retention window, so its inserts
+ *   and indexes stay the same size however old the service gets
+ * - Whole calendar months past retention are written, oldest first, to one
+ *   compressed columnar file each ({@link ArchiveFile}) and then published
+ *   by moving the archive boundary past them
+ * - Rows below the boundary are deleted on the following run, so readers
+ *   still holding the previous snapshot can finish against the table
+ * - Reads go through {@link #snapshot()}; decoded months are kept in a small
+ *   LRU cache since old data is rarely read and usually a month at a time
+ * - Files carry the {@link DatabaseIdentity} they were archived from; on
+ *   startup, files of another database are left on disk but not served, so
+ *   a fresh in-memory database does not show an earlier run's rows
+ */
+@Component
+public class TransactionArchive {
+
+    private static final String PREFIX = "transactions-";
+    private static final String SUFFIX = ".tcol";
+
+    private final TransactionRepository repository;
+    private final DatabaseIdentityRepository identityRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final int retentionDays;
+    private final boolean resetOnStartup;
+    private final Cache<Path, ArchivedMonth> months;
+    private volatile String databaseId;
+    private volatile ArchiveSnapshot snapshot;
+
+    public TransactionArchive(TransactionRepository repository,
+                              DatabaseIdentityRepository identityRepository,
+                              EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${archive.directory:${java.io.tmpdir}/transaction-archive}") String directory,
+                              @Value("${archive.retention-days:90}") int retentionDays,
+                              @Value("${archive.reset-on-startup:false}") boolean resetOnStartup,
+                              @Value("${archive.cached-months:2}") int cachedMonths) {
+        if (retentionDays < 0) {
+            throw new IllegalArgumentException("archive.retention-days must not be negative");
+        }
+        this.repository = repository;
+        this.identityRepository = identityRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.transactionTemplate = transactionTemplate;
+        this.directory = Paths.get(directory);
+        this.retentionDays = retentionDays;
+        this.resetOnStartup = resetOnStartup;
+        this.months = Caffeine.newBuilder().maximumSize(cachedMonths).build();
+        this.snapshot = ArchiveSnapshot.EMPTY;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        databaseId = databaseId();
+        Files.createDirectories(directory);
+        List<ArchiveSnapshot.MonthFile> files = new ArrayList<>();
+        int foreign = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : entries) {
+                if (resetOnStartup) {
+                    // Only for an in-memory database (dev profile): it starts empty, so files from an earlier run are stale
+                    Files.delete(path);
+                    continue;
+                }
+                YearMonth month = monthOf(path);
+                if (month == null) continue;
+                ArchiveFile.Header header = ArchiveFile.readHeader(path);
+                // Version 1 files predate database ids and are trusted as before
+                if (header.databaseId != null && !header.databaseId.equals(databaseId)) {
+                    foreign++;
+                    continue;
+                }
+                files.add(new ArchiveSnapshot.MonthFile(month, path, header));
+            }
+        }
+        if (foreign > 0) {
+            System.err.println("❌ Ignoring " + foreign + " archive files in " + directory + " written for another database");
+        }
+        files.sort((a, b) -> a.month.compareTo(b.month));
+        publish(files);
+    }
+
+    public ArchiveSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Drops table rows archived by the previous run, then archives every
+     * whole month that ended before the retention cutoff
+     *
+     * @return number of months archived
+     */
+    @Scheduled(initialDelayString = "${archive.interval-ms:3600000}", fixedDelayString = "${archive.interval-ms:3600000}")
+    public synchronized int archiveExpired() {
+        LocalDateTime boundary = snapshot.getBoundary();
+        if (boundary != null) {
+            Integer deleted = transactionTemplate.execute(status -> repository.deleteOlderThan(boundary));
+            if (deleted != null && deleted > 0) {
+                System.out.println("🧊 Dropped " + deleted + " archived transactions before " + boundary);
+            }
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int archived = 0;
+        while (true) {
+            LocalDateTime from = snapshot.getBoundary() != null ? snapshot.getBoundary() : LocalDateTime.of(1970, 1, 1, 0, 0);
+            LocalDateTime oldest = repository.findOldestTimestampFrom(from);
+            if (oldest == null) break;
+
+            YearMonth month = YearMonth.from(oldest);
+            if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) break;
+
+            try {
+                archiveMonth(month);
+            } catch (IOException e) {
+                System.err.println("❌ Failed to archive " + month + ": " + e.getMessage());
+                break;
+            }
+            archived++;
+        }
+        return archived;
+    }
+
+    private void archiveMonth(YearMonth month) throws IOException {
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        ArchiveFile.Writer writer = new ArchiveFile.Writer();
+
+        try {
+            readOnlyTemplate.executeWithoutResult(status -> {
+                try (Stream<Transaction> rows = repository.streamRange(start, end)) {
+                    Iterator<Transaction> it = rows.iterator();
+                    while (it.hasNext()) {
+                        Transaction transaction = it.next();
+                        writer.add(transaction);
+                        entityManager.detach(transaction);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Path target = directory.resolve(PREFIX + month + SUFFIX);
+        Path temp = directory.resolve(PREFIX + month + SUFFIX + ".tmp");
+        writer.writeTo(temp, databaseId);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<ArchiveSnapshot.MonthFile> files = new ArrayList<>(snapshot.months());
+        files.add(new ArchiveSnapshot.MonthFile(month, target, ArchiveFile.readHeader(target)));
+        publish(files);
+        System.out.println("🧊 Archived " + writer.size() + " transactions of " + month + " (" + Files.size(target) + " bytes)");
+    }
+
+    private String databaseId() {
+        try {
+            return transactionTemplate.execute(status -> identityRepository.findById(DatabaseIdentity.ONLY_ROW)
+                    .orElseGet(() -> identityRepository.saveAndFlush(DatabaseIdentity.random()))
+                    .getUuid());
+        } catch (DataIntegrityViolationException e) {
+            // Another instance on the same database created it first
+            return identityRepository.findById(DatabaseIdentity.ONLY_ROW).orElseThrow().getUuid();
+        }
+    }
+
+    private void publish(List<ArchiveSnapshot.MonthFile> files) {
+        snapshot = new ArchiveSnapshot(List.copyOf(files), this::load);
+    }
+
+    private ArchivedMonth load(ArchiveSnapshot.MonthFile file) {
+        return months.get(file.path, path -> {
+            try {
+                return ArchiveFile.read(path, file.month);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archive " + path, e);
+            }
+        });
+    }
+
+    private static YearMonth monthOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.paypal.transaction_service.config;
+
+import com.paypal.transaction_service.kafka.KafkaEventProducer;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    /**
+     * Created on startup if missing; an existing topic with fewer partitions
+     * is grown, which moves keys to new partitions once
+     */
+    @Bean
+    public NewTopic transactionEventsTopic(@Value("${kafka.topic.partitions:6}") int partitions,
+                                           @Value("${kafka.topic.replicas:1}") int replicas) {
+        return TopicBuilder.name(KafkaEventProducer.TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+}
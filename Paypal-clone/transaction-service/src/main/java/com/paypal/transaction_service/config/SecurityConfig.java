@@ -1,10 +1,15 @@
 package com.paypal.transaction_service.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.Customizer;
 
@@ -16,12 +21,30 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Deposits create money from the external account; internal callers only
+                        .requestMatchers(HttpMethod.POST, "/api/transactions/deposit").hasRole("INTERNAL")
                         .requestMatchers("/api/transactions/**").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/metrics/**", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
-                );
+                )
+                .httpBasic(Customizer.withDefaults());
 
         return http.build();
     }
+
+    // The one internal caller, over HTTP Basic; with none configured every deposit is refused
+    @Bean
+    public UserDetailsService internalCallers(PasswordEncoder passwordEncoder,
+                                              @Value("${security.internal.username:}") String username,
+                                              @Value("${security.internal.password:}") String password) {
+        if (username.isBlank() || password.isBlank()) {
+            return new InMemoryUserDetailsManager();
+        }
+        return new InMemoryUserDetailsManager(User.withUsername(username)
+                .password(passwordEncoder.encode(password))
+                .roles("INTERNAL")
+                .build());
+    }
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
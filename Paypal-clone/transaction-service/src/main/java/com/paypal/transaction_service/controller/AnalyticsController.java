@@ -0,0 +1,82 @@
+package com.paypal.transaction_service.controller;
+
+import com.paypal.transaction_service.analytics.TransactionAnalytics;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Dashboard aggregates over recent successful transfers, answered from memory; see TransactionAnalytics
+@RestController
+@RequestMapping("/api/transactions/analytics")
+public class AnalyticsController {
+
+    private static final int MAX_TOP = 1000;
+
+    private final TransactionAnalytics analytics;
+
+    public AnalyticsController(TransactionAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    // Count, sum, min, max and average amount
+    @GetMapping("/summary")
+    public ResponseEntity<?> summary(@RequestParam(name = "from", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam(name = "to", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return answer(() -> analytics.summary(from, to));
+    }
+
+    // Amount distribution, e.g. ?p=50&p=99.9
+    @GetMapping("/percentiles")
+    public ResponseEntity<?> percentiles(@RequestParam(name = "from", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                         @RequestParam(name = "to", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                         @RequestParam(name = "p", defaultValue = "50,90,99") List<Double> percentiles) {
+        double[] p = percentiles.stream().mapToDouble(Double::doubleValue).toArray();
+        return answer(() -> analytics.percentiles(from, to, p));
+    }
+
+    // Count and sum per bucket, empty buckets included
+    @GetMapping("/volume")
+    public ResponseEntity<?> volume(@RequestParam(name = "from", required = false)
+                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                    @RequestParam(name = "to", required = false)
+                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                    @RequestParam(name = "bucketSeconds", defaultValue = "60") int bucketSeconds) {
+        return answer(() -> analytics.volume(from, to, bucketSeconds));
+    }
+
+    // Accounts that sent (by=sender) or received (by=receiver) the most
+    @GetMapping("/top")
+    public ResponseEntity<?> top(@RequestParam(name = "from", required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                 @RequestParam(name = "to", required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                 @RequestParam(name = "by", defaultValue = "sender") String by,
+                                 @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (!by.equals("sender") && !by.equals("receiver")) {
+            return ResponseEntity.badRequest().body("by must be sender or receiver");
+        }
+        if (limit < 1 || limit > MAX_TOP) {
+            return ResponseEntity.badRequest().body("limit must be 1-" + MAX_TOP);
+        }
+        return answer(() -> analytics.topAccounts(from, to, by.equals("sender"), limit));
+    }
+
+    private static ResponseEntity<?> answer(Supplier<?> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.paypal.transaction_service.controller;
+
+import com.paypal.transaction_service.service.IdempotencyKeyReusedException;
+import com.paypal.transaction_service.service.VelocityLimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // Retry-After is left out when the transfer exceeds the limit on its own
+    @ExceptionHandler(VelocityLimitExceededException.class)
+    public ResponseEntity<String> velocityLimitExceeded(VelocityLimitExceededException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+        if (e.getRetryAfterMillis() > 0) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf((e.getRetryAfterMillis() + 999) / 1000));
+        }
+        return response.body(e.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<String> idempotencyKeyReused(IdempotencyKeyReusedException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+    }
+}
@@ -1,30 +1,166 @@
 package com.paypal.transaction_service.controller;
 
 
+import com.paypal.transaction_service.dto.AccountBalance;
+import com.paypal.transaction_service.dto.DepositRequest;
+import com.paypal.transaction_service.dto.TransactionHistoryItem;
+import com.paypal.transaction_service.dto.TransactionPage;
+import com.paypal.transaction_service.dto.TransactionRequestStatus;
+import com.paypal.transaction_service.entity.IdempotencyKey;
 import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.service.AsyncTransactionService;
+import com.paypal.transaction_service.service.BulkPayoutService;
+import com.paypal.transaction_service.service.IdempotencyService;
+import com.paypal.transaction_service.service.LedgerService;
 import com.paypal.transaction_service.service.TransactionService;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/transactions/")
 public class TransactionController {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final long MAX_WAIT_SECONDS = 60;
+    // Bulk payouts append "#<line>" to the key
+    private static final int MAX_PAYOUT_KEY_LENGTH = MAX_IDEMPOTENCY_KEY_LENGTH - 20;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
     private final TransactionService service;
+    private final IdempotencyService idempotencyService;
+    private final BulkPayoutService bulkPayoutService;
+    private final AsyncTransactionService asyncService;
 
-    public TransactionController(TransactionService service) {
+    public TransactionController(TransactionService service, IdempotencyService idempotencyService,
+                                 BulkPayoutService bulkPayoutService, AsyncTransactionService asyncService) {
         this.service = service;
+        this.idempotencyService = idempotencyService;
+        this.bulkPayoutService = bulkPayoutService;
+        this.asyncService = asyncService;
     }
+    // With Prefer: respond-async, answered 202 at once; poll the Location, or pass a Callback-Url
     @PostMapping("/create")
-    public ResponseEntity<?> create(@Valid @RequestBody Transaction transaction) {
+    public ResponseEntity<?> create(@Valid @RequestBody Transaction transaction,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                    @RequestHeader(value = "Prefer", required = false) String prefer,
+                                    @RequestHeader(value = "Callback-Url", required = false) String callbackUrl) {
+
+        if (Objects.equals(transaction.getSenderId(), LedgerService.EXTERNAL_ACCOUNT_ID)) {
+            return ResponseEntity.badRequest().body("Account " + LedgerService.EXTERNAL_ACCOUNT_ID + " is reserved; use /deposit");
+        }
+        if (Objects.equals(transaction.getSenderId(), transaction.getReceiverId())) {
+            return ResponseEntity.badRequest().body("senderId and receiverId must differ");
+        }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().body("Idempotency-Key must be 1-" + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        if (prefer != null && prefer.toLowerCase(Locale.ROOT).contains("respond-async")) {
+            return accept(transaction, idempotencyKey, callbackUrl);
+        }
+        if (idempotencyKey == null) {
+            return settled(service.createTransaction(transaction));
+        }
+
+        String requestHash = IdempotencyKey.requestHash(transaction.getSenderId(), transaction.getReceiverId(), transaction.getAmount());
+        Transaction created = idempotencyService.execute(idempotencyKey, requestHash,
+                () -> service.createTransaction(transaction, idempotencyKey));
+        return settled(created);
+    }
+
+    // Status of an async create; wait=N holds the request up to N seconds for it to settle
+    @GetMapping("/requests/{requestId}")
+    public DeferredResult<ResponseEntity<TransactionRequestStatus>> requestStatus(
+            @PathVariable("requestId") String requestId,
+            @RequestParam(name = "wait", defaultValue = "0") long waitSeconds) {
+        long wait = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+        TransactionRequestStatus status = asyncService.getStatus(requestId);
+        DeferredResult<ResponseEntity<TransactionRequestStatus>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait) + 1000);
+        if (status == null) {
+            result.setResult(ResponseEntity.notFound().build());
+        } else if (!status.isPending() || wait == 0) {
+            result.setResult(ResponseEntity.ok(status));
+        } else {
+            // Released without a thread held; still PENDING if nothing happened in time
+            asyncService.awaitStatus(requestId)
+                    .completeOnTimeout(status, wait, TimeUnit.SECONDS)
+                    .thenAccept(latest -> result.setResult(ResponseEntity.ok(latest)));
+        }
+        return result;
+    }
+
+    // Funds an account from outside the system
+    @PostMapping("/deposit")
+    public ResponseEntity<?> deposit(@Valid @RequestBody DepositRequest request,
+                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        if (request.getUserId() == LedgerService.EXTERNAL_ACCOUNT_ID) {
+            return ResponseEntity.badRequest().body("Account " + LedgerService.EXTERNAL_ACCOUNT_ID + " is reserved");
+        }
+        if (idempotencyKey == null) {
+            return settled(service.deposit(request.getUserId(), request.getAmount(), null));
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body("Idempotency-Key must be 1-" + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = IdempotencyKey.requestHash(LedgerService.EXTERNAL_ACCOUNT_ID, request.getUserId(), request.getAmount());
+        Transaction created = idempotencyService.execute(idempotencyKey, requestHash,
+                () -> service.deposit(request.getUserId(), request.getAmount(), idempotencyKey));
+        return settled(created);
+    }
+
+    // One-to-many transfers: NDJSON {"receiverId":..,"amount":..} or CSV receiverId,amount lines in, one result line out per line
+    @PostMapping(value = "/accounts/{senderId}/payouts", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<StreamingResponseBody> payout(@PathVariable("senderId") Long senderId,
+                                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                        HttpServletRequest request) {
+        if (senderId == LedgerService.EXTERNAL_ACCOUNT_ID) {
+            return badRequest("Account " + LedgerService.EXTERNAL_ACCOUNT_ID + " is reserved; use /deposit");
+        }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_PAYOUT_KEY_LENGTH)) {
+            return badRequest("Idempotency-Key must be 1-" + MAX_PAYOUT_KEY_LENGTH + " characters");
+        }
+        BulkPayoutService.Format format = CSV.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? BulkPayoutService.Format.CSV : BulkPayoutService.Format.NDJSON;
+
+        // Read while the response streams, so the upload is never held in memory
+        StreamingResponseBody body = out -> bulkPayoutService.payout(senderId, format, idempotencyKey, request.getInputStream(), out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @GetMapping("/accounts/{userId}/balance")
+    public AccountBalance balance(@PathVariable("userId") Long userId) {
+        return service.getBalance(userId);
+    }
 
-        Transaction created = service.createTransaction(transaction);
-        return ResponseEntity.ok(created);
+    // For status polling; usually answered without touching the database
+    @GetMapping("/{id}")
+    public ResponseEntity<Transaction> getById(@PathVariable("id") Long id) {
+        Transaction transaction = service.getTransaction(id);
+        return transaction != null ? ResponseEntity.ok(transaction) : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/all")
@@ -32,4 +168,89 @@ public class TransactionController {
         return service.getAllTransactions();
     }
 
-}
\ No newline at end of file
+    // Cursor-paginated listing; prefer this or /export over /all on large tables
+    @GetMapping("/page")
+    public ResponseEntity<?> page(@RequestParam(name = "after", required = false) String after,
+                                  @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be 1-" + MAX_PAGE_SIZE);
+        }
+        try {
+            TransactionPage page = service.getTransactionsPage(after, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = out -> service.exportTransactions(out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @GetMapping("/accounts/{userId}/history")
+    public ResponseEntity<?> history(@PathVariable("userId") Long userId,
+                                     @RequestParam(name = "direction", defaultValue = "all") String direction,
+                                     @RequestParam(name = "from", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam(name = "to", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                     @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be 1-" + MAX_PAGE_SIZE);
+        }
+        try {
+            List<TransactionHistoryItem> history = service.getAccountHistory(userId, direction, from, to, limit);
+            return ResponseEntity.ok(history);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Streaming handlers must declare a StreamingResponseBody, errors included
+    private static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ResponseEntity<?> accept(Transaction transaction, String idempotencyKey, String callbackUrl) {
+        URI callback = null;
+        if (callbackUrl != null) {
+            try {
+                callback = new URI(callbackUrl);
+            } catch (URISyntaxException e) {
+                callback = null;
+            }
+            if (callback == null || !("http".equals(callback.getScheme()) || "https".equals(callback.getScheme()))
+                    || callback.getHost() == null) {
+                return ResponseEntity.badRequest().body("Callback-Url must be an absolute http(s) URL");
+            }
+            if (!asyncService.acceptsCallback(callback)) {
+                return ResponseEntity.badRequest().body("Callback-Url host is not allowed");
+            }
+        }
+
+        TransactionRequestStatus accepted;
+        try {
+            accepted = asyncService.submit(transaction, idempotencyKey, callback);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many transactions waiting; retry shortly");
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/requests/" + accepted.getRequestId()))
+                .header("Preference-Applied", "respond-async")
+                .body(accepted);
+    }
+
+    // A transfer the sender could not cover is stored, but answered with 422
+    private static ResponseEntity<Transaction> settled(Transaction transaction) {
+        if (LedgerService.FAILED.equals(transaction.getStatus())) {
+            return ResponseEntity.unprocessableEntity().body(transaction);
+        }
+        return ResponseEntity.ok(transaction);
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.paypal.transaction_service.dto;
+
+import java.math.BigDecimal;
+
+public class AccountBalance {
+
+    private final Long accountId;
+    // Spendable balance
+    private final BigDecimal balance;
+    // Buffered credits not yet folded into balance
+    private final BigDecimal pendingCredits;
+
+    public AccountBalance(Long accountId, BigDecimal balance, BigDecimal pendingCredits) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.pendingCredits = pendingCredits;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public BigDecimal getPendingCredits() {
+        return pendingCredits;
+    }
+}
@@ -0,0 +1,27 @@
+package com.paypal.transaction_service.dto;
+
+// Transfers sent, or received, by one account over a time range
+public class AccountVolume {
+
+    private final Long accountId;
+    private final long count;
+    private final double sum;
+
+    public AccountVolume(Long accountId, long count, double sum) {
+        this.accountId = accountId;
+        this.count = count;
+        this.sum = sum;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+}
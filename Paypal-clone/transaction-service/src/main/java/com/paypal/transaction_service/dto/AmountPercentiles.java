@@ -0,0 +1,39 @@
+package com.paypal.transaction_service.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Nearest-rank percentiles of transfer amounts in [from, to), keyed like
+ * "p50" or "p99.9"; empty when there were no transfers.
+ */
+public class AmountPercentiles {
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final long count;
+    private final Map<String, Double> percentiles;
+
+    public AmountPercentiles(LocalDateTime from, LocalDateTime to, long count, Map<String, Double> percentiles) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+        this.percentiles = percentiles;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<String, Double> getPercentiles() {
+        return percentiles;
+    }
+}
@@ -0,0 +1,57 @@
+package com.paypal.transaction_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Successful transfers in [from, to), from the in-memory analytics store.
+ * min, max and average are null when there were none.
+ */
+public class AnalyticsSummary {
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final long count;
+    private final double sum;
+    private final Double min;
+    private final Double max;
+    private final Double average;
+
+    public AnalyticsSummary(LocalDateTime from, LocalDateTime to, long count, double sum,
+                            Double min, Double max, Double average) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public Double getAverage() {
+        return average;
+    }
+}
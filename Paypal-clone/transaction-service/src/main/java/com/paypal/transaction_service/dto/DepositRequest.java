@@ -0,0 +1,33 @@
+package com.paypal.transaction_service.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public class DepositRequest {
+
+    @NotNull
+    private Long userId;
+
+    @NotNull
+    @Positive(message = "Amount must be positive")
+    private Double amount;
+
+    public DepositRequest() {
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+}
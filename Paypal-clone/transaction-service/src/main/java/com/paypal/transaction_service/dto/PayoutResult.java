@@ -0,0 +1,46 @@
+package com.paypal.transaction_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one line of a bulk payout, streamed back as it is settled.
+ * status is SUCCESS or FAILED for written transfers, INVALID for a line
+ * that could not be parsed, REJECTED for a velocity limit or a resent line
+ * that differs from the one first sent at its position, and ERROR if the
+ * write itself failed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PayoutResult {
+
+    public static final String INVALID = "INVALID";
+    public static final String REJECTED = "REJECTED";
+    public static final String ERROR = "ERROR";
+
+    private final long line;
+    private final String status;
+    private final Long transactionId;
+    private final String error;
+
+    public PayoutResult(long line, String status, Long transactionId, String error) {
+        this.line = line;
+        this.status = status;
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,54 @@
+package com.paypal.transaction_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of an account's history, seen from that account.
+ * Built directly by the history queries, so only these columns are read.
+ */
+public class TransactionHistoryItem {
+
+    public static final String SENT = "SENT";
+    public static final String RECEIVED = "RECEIVED";
+
+    private final Long id;
+    private final String direction;
+    private final Long counterpartyId;
+    private final Double amount;
+    private final LocalDateTime timestamp;
+    private final String status;
+
+    public TransactionHistoryItem(Long id, String direction, Long counterpartyId,
+                                  Double amount, LocalDateTime timestamp, String status) {
+        this.id = id;
+        this.direction = direction;
+        this.counterpartyId = counterpartyId;
+        this.amount = amount;
+        this.timestamp = timestamp;
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public Long getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,32 @@
+package com.paypal.transaction_service.dto;
+
+import com.paypal.transaction_service.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * One page of transactions in (timestamp, id) order.
+ * nextCursor is passed back as "after" to fetch the following page and is
+ * null once the last page has been returned.
+ */
+public class TransactionPage {
+
+    private List<Transaction> items;
+    private String nextCursor;
+
+    public TransactionPage() {
+    }
+
+    public TransactionPage(List<Transaction> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Transaction> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,48 @@
+package com.paypal.transaction_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * State of a create accepted with Prefer: respond-async.
+ * status is PENDING until the transfer is written, then SUCCESS or FAILED;
+ * error is set if it failed without being written.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionRequestStatus {
+
+    public static final String PENDING = "PENDING";
+
+    private final String requestId;
+    private final String status;
+    private final Long transactionId;
+    private final String error;
+
+    public TransactionRequestStatus(String requestId, String status, Long transactionId, String error) {
+        this.requestId = requestId;
+        this.status = status;
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public boolean isPending() {
+        return PENDING.equals(status);
+    }
+}
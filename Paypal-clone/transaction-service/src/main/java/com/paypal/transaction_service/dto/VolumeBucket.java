@@ -0,0 +1,29 @@
+package com.paypal.transaction_service.dto;
+
+import java.time.LocalDateTime;
+
+// One bucket of the volume series: transfers from start until the next bucket
+public class VolumeBucket {
+
+    private final LocalDateTime start;
+    private final long count;
+    private final double sum;
+
+    public VolumeBucket(LocalDateTime start, long count, double sum) {
+        this.start = start;
+        this.count = count;
+        this.sum = sum;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+}
@@ -0,0 +1,47 @@
+package com.paypal.transaction_service.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Ledger balance of one user, keyed by the user id.
+ * Postings update it under optimistic locking; buffered credits to hot
+ * accounts reach it later through {@link LedgerEntry#isApplied()}.
+ */
+@Entity
+@Table(name = "account")
+public class Account {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal balance;
+
+    @Version
+    private Long version;
+
+    public Account() {}
+
+    public Account(Long id) {
+        this.id = id;
+        this.balance = BigDecimal.ZERO;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
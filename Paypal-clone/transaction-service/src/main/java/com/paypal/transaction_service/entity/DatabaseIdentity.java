@@ -0,0 +1,36 @@
+package com.paypal.transaction_service.entity;
+
+import jakarta.persistence.*;
+
+import java.util.UUID;
+
+/**
+ * Random id of this database, created on first startup and kept in its
+ * single row. Archive files carry it, so files left behind by another
+ * database, such as an earlier in-memory run, are told apart from its own.
+ */
+@Entity
+@Table(name = "database_identity")
+public class DatabaseIdentity {
+
+    public static final Integer ONLY_ROW = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false, length = 36)
+    private String uuid;
+
+    public DatabaseIdentity() {}
+
+    public static DatabaseIdentity random() {
+        DatabaseIdentity identity = new DatabaseIdentity();
+        identity.id = ONLY_ROW;
+        identity.uuid = UUID.randomUUID().toString();
+        return identity;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+}
@@ -0,0 +1,85 @@
+package com.paypal.transaction_service.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Idempotency-Key already used for a create request, the transaction it
+ * produced, and a hash of that request so a reuse with another payload is caught.
+ * Implements Persistable so saving a new key is a plain INSERT rather than a
+ * SELECT followed by an INSERT, as it would be for an assigned id.
+ */
+@Entity
+@Table(name = "idempotency_key", indexes = {
+        @Index(name = "idx_idempotency_created", columnList = "createdAt")
+})
+public class IdempotencyKey implements Persistable<String> {
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    @Column(nullable = false)
+    private Long transactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // Null for keys stored before request hashes were kept
+    @Column(length = 64)
+    private String requestHash;
+
+    @Transient
+    private boolean isNew;
+
+    public IdempotencyKey() {}
+
+    public IdempotencyKey(String key, Long transactionId, String requestHash) {
+        this.key = key;
+        this.transactionId = transactionId;
+        this.createdAt = LocalDateTime.now();
+        this.requestHash = requestHash;
+        this.isNew = true;
+    }
+
+    /**
+     * SHA-256 of the fields that decide what a transfer does, hex encoded
+     */
+    public static String requestHash(Long senderId, Long receiverId, Double amount) {
+        try {
+            byte[] payload = (senderId + "|" + receiverId + "|" + amount).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+}
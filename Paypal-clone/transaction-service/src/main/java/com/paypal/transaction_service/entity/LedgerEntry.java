@@ -0,0 +1,75 @@
+package com.paypal.transaction_service.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One side of a double-entry posting: every successful {@link Transaction}
+ * has a debit (negative amount) on the sender and a credit on the receiver.
+ * An entry is applied once its amount is included in the account balance.
+ */
+@Entity
+@Table(name = "ledger_entry", indexes = {
+        @Index(name = "idx_ledger_entry_unapplied", columnList = "applied, id"),
+        @Index(name = "idx_ledger_entry_account", columnList = "accountId, applied")
+})
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "ledger_entry_seq", allocationSize = 50)
+    private Long id;
+
+    // No foreign key: archived transactions leave the transaction table, their entries stay
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "transaction_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Transaction transaction;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private boolean applied;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public LedgerEntry() {}
+
+    public LedgerEntry(Transaction transaction, Long accountId, BigDecimal amount, boolean applied) {
+        this.transaction = transaction;
+        this.accountId = accountId;
+        this.amount = amount;
+        this.applied = applied;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
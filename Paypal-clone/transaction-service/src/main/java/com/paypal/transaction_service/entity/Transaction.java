@@ -9,11 +9,17 @@ import jakarta.validation.constraints.Positive;
 
 
 @Entity
-@Table(name = "transaction")
+@Table(name = "transaction", indexes = {
+        @Index(name = "idx_transaction_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "idx_transaction_sender_timestamp", columnList = "senderId, timestamp"),
+        @Index(name = "idx_transaction_receiver_timestamp", columnList = "receiverId, timestamp")
+})
 public class Transaction {
 
+    // Pooled sequence rather than IDENTITY so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -1,44 +1,142 @@
 package com.paypal.transaction_service.kafka;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.paypal.transaction_service.entity.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Sends transaction events to Kafka.
+ * - At most kafka.producer.max-in-flight sends await their ack; a caller
+ *   that cannot get a slot within acquire-timeout-ms gets
+ *   {@link ProducerBusyException} instead of queueing without bound
+ * - Logging is sampled: one summary line per log-every acks or failures,
+ *   rather than the whole Transaction on every send and ack
+ * Batching, compression and idempotence are spring.kafka.producer settings;
+ * see the kafka-throughput profile.
+ */
 @Component
 public class KafkaEventProducer {
 
-    private static final String TOPIC = "txn-initiated";
+    public static final String TOPIC = "txn-initiated";
 
     private final KafkaTemplate<String, Transaction> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Counter failedSends;
+    private final Counter rejectedSends;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long acquireTimeoutMs;
+    private final long logEvery;
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
 
     @Autowired
-    public KafkaEventProducer(KafkaTemplate<String, Transaction> kafkaTemplate, ObjectMapper objectMapper) {
+    public KafkaEventProducer(KafkaTemplate<String, Transaction> kafkaTemplate, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${kafka.producer.max-in-flight:10000}") int maxInFlight,
+                              @Value("${kafka.producer.acquire-timeout-ms:1000}") long acquireTimeoutMs,
+                              @Value("${kafka.producer.log-every:1000}") long logEvery) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxInFlight = maxInFlight;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.logEvery = Math.max(1, logEvery);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.failedSends = Counter.builder("kafka.send.failed")
+                .description("Sends that threw or were not acknowledged")
+                .tag("topic", TOPIC)
+                .register(meterRegistry);
+        this.rejectedSends = Counter.builder("kafka.send.rejected")
+                .description("Sends refused because max-in-flight sends were awaiting acks")
+                .tag("topic", TOPIC)
+                .register(meterRegistry);
+        Gauge.builder("kafka.send.in-flight", this, KafkaEventProducer::getInFlight)
+                .tag("topic", TOPIC)
+                .register(meterRegistry);
         // Register module to handle Java 8 date/time serialization
         this.objectMapper.registerModule(new JavaTimeModule());
     }
-    public void sendTransactionEvent(String key, Transaction transaction) {
-        System.out.println("📤 Sending to Kafka → Topic: " + TOPIC + ", Key: " + key + ", Message: " + transaction);
-
-        CompletableFuture<SendResult<String, Transaction>> future = kafkaTemplate.send(TOPIC, key, transaction);
-
-        future.thenAccept(result -> {
-            RecordMetadata metadata = result.getRecordMetadata();
-            System.out.println("✅ Kafka message sent successfully! Topic: " + metadata.topic() + ", Partition: " + metadata.partition() + ", Offset: " + metadata.offset());
-        }).exceptionally(ex -> {
-            System.err.println("❌ Failed to send Kafka message: " + ex.getMessage());
-            ex.printStackTrace();
-            return null;
+
+    /**
+     * @throws ProducerBusyException if no in-flight slot frees up in time; nothing was sent
+     */
+    public CompletableFuture<SendResult<String, Transaction>> sendTransactionEvent(String key, Transaction transaction) {
+        acquireSlot();
+
+        // Timed from send() until the broker acknowledges, so it covers linger and batching too
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<SendResult<String, Transaction>> future;
+        try {
+            future = kafkaTemplate.send(TOPIC, key, transaction);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            sample.stop(sendTimer("failure"));
+            onFailure(e);
+            throw e;
+        }
+
+        future.whenComplete((result, ex) -> {
+            inFlight.release();
+            if (ex == null) {
+                sample.stop(sendTimer("success"));
+                onAck(result.getRecordMetadata());
+            } else {
+                sample.stop(sendTimer("failure"));
+                onFailure(ex);
+            }
         });
+        return future;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    private void acquireSlot() {
+        try {
+            if (inFlight.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedSends.increment();
+        throw new ProducerBusyException(maxInFlight);
+    }
+
+    private void onAck(RecordMetadata metadata) {
+        long n = acked.incrementAndGet();
+        if (n % logEvery == 0) {
+            System.out.println("✅ Kafka acked " + n + " events (" + failed.get() + " failed, " + getInFlight()
+                    + " in flight); last: " + metadata.topic() + "-" + metadata.partition() + "@" + metadata.offset());
+        }
+    }
+
+    private void onFailure(Throwable ex) {
+        failedSends.increment();
+        long n = failed.incrementAndGet();
+        // The first failure, then every log-every-th
+        if (n % logEvery == 1 || logEvery == 1) {
+            System.err.println("❌ Kafka send failed (" + n + " failures so far): " + ex.getMessage());
+        }
+    }
+
+    private Timer sendTimer(String outcome) {
+        return meterRegistry.timer("kafka.send", "topic", TOPIC, "outcome", outcome);
     }
-}
\ No newline at end of file
+}
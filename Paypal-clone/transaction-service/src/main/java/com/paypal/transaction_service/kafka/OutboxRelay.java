@@ -0,0 +1,138 @@
+package com.paypal.transaction_service.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypal.transaction_service.entity.OutboxEvent;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes committed outbox rows to Kafka.
+ * Each poll sends a whole batch before waiting on any acknowledgement, so the
+ * producer can pack the records into a few requests, then marks every
+ * acknowledged row published with one UPDATE. Rows whose send failed stay
+ * unpublished and are retried on the next poll (at-least-once delivery).
+ * Rows are sent in id order on one thread and the idempotent producer keeps
+ * that order within a partition. Once a send fails, later rows with the same
+ * key are left unpublished too, so a retry never lands behind a newer event
+ * for that key; those rows may then reach consumers twice.
+ * Progress is published as outbox.relay.* meters; only the start and end of
+ * a run of failing polls are logged.
+ */
+@Component
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxRepository;
+    private final KafkaEventProducer kafkaEventProducer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final Counter publishedEvents;
+    private final Counter deferredEvents;
+    // Polls in a row that could not send; only touched by the scheduler thread
+    private long failingPolls;
+
+    public OutboxRelay(OutboxEventRepository outboxRepository,
+                       KafkaEventProducer kafkaEventProducer,
+                       ObjectMapper objectMapper,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaEventProducer = kafkaEventProducer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.publishedEvents = Counter.builder("outbox.relay.published")
+                .description("Outbox rows sent, acknowledged and marked published")
+                .register(meterRegistry);
+        this.deferredEvents = Counter.builder("outbox.relay.deferred")
+                .description("Outbox rows left unpublished by a poll, to be retried on the next")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        int published;
+        do {
+            published = relayBatch();
+            // Keep draining while batches come back full
+        } while (published == batchSize);
+    }
+
+    /**
+     * @return number of rows marked published
+     */
+    int relayBatch() {
+        List<OutboxEvent> batch = outboxRepository.findByPublishedAtIsNullOrderByIdAsc(Limit.of(batchSize));
+        if (batch.isEmpty()) return 0;
+
+        List<CompletableFuture<SendResult<String, Transaction>>> sends = new ArrayList<>(batch.size());
+        Exception sendFailure = null;
+        for (OutboxEvent event : batch) {
+            try {
+                Transaction transaction = objectMapper.readValue(event.getPayload(), Transaction.class);
+                sends.add(kafkaEventProducer.sendTransactionEvent(event.getEventKey(), transaction));
+            } catch (Exception e) {
+                // No broker metadata, or ProducerBusyException; the rest of the batch would fail the same way
+                sendFailure = e;
+                break;
+            }
+        }
+
+        List<Long> published = new ArrayList<>(batch.size());
+        Set<String> failedKeys = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (int i = 0; i < sends.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (!failedKeys.contains(event.getEventKey())) {
+                    published.add(event.getId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // Left unpublished with the rest of its key; retried on the next poll
+                failedKeys.add(event.getEventKey());
+                if (sendFailure == null) sendFailure = e;
+            }
+        }
+
+        if (!published.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.markPublished(published, LocalDateTime.now()));
+            publishedEvents.increment(published.size());
+        }
+        deferredEvents.increment(batch.size() - published.size());
+
+        if (sendFailure != null) {
+            if (failingPolls++ == 0) {
+                System.err.println("❌ Outbox relay failing, retrying every poll: " + sendFailure.getMessage());
+            }
+        } else if (failingPolls > 0) {
+            System.out.println("📦 Outbox relay recovered after " + failingPolls + " failing polls");
+            failingPolls = 0;
+        }
+        return published.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.paypal.transaction_service.kafka;
+
+import com.paypal.transaction_service.entity.Transaction;
+
+/**
+ * Record key of a txn-initiated event, set by kafka.topic.partition-key.
+ * Events with the same key share a partition, so consumers see them in the
+ * order they were published.
+ */
+public enum PartitionKeyStrategy {
+    /**
+     * Per-transaction key; spreads evenly but orders nothing across events
+     */
+    TRANSACTION {
+        @Override
+        public String keyOf(Transaction transaction) {
+            return String.valueOf(transaction.getId());
+        }
+    },
+    /**
+     * Orders each account's outgoing transfers. Deposits all come from the
+     * external account, so they share one partition
+     */
+    SENDER {
+        @Override
+        public String keyOf(Transaction transaction) {
+            return String.valueOf(transaction.getSenderId());
+        }
+    },
+    /**
+     * Orders each account's incoming transfers, the events reward-service and
+     * notification-service act on
+     */
+    RECEIVER {
+        @Override
+        public String keyOf(Transaction transaction) {
+            return String.valueOf(transaction.getReceiverId());
+        }
+    },
+    /**
+     * Orders transfers between the same sender and receiver only; spreads a
+     * hot receiver's traffic across partitions
+     */
+    SENDER_RECEIVER {
+        @Override
+        public String keyOf(Transaction transaction) {
+            return transaction.getSenderId() + ":" + transaction.getReceiverId();
+        }
+    };
+
+    public abstract String keyOf(Transaction transaction);
+}
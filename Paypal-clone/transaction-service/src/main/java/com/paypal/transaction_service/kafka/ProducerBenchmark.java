@@ -0,0 +1,103 @@
+package com.paypal.transaction_service.kafka;
+
+import com.paypal.transaction_service.entity.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures events per second through {@link KafkaEventProducer} against the
+ * configured broker, then leaves the service running:
+ *
+ *   --spring.profiles.active=producer-bench[,kafka-throughput] --producer-bench.events=500000
+ *
+ * Events go to the real txn-initiated topic, so point it at a test broker.
+ */
+@Component
+@Profile("producer-bench")
+public class ProducerBenchmark implements ApplicationRunner {
+
+    private final KafkaEventProducer producer;
+    private final KafkaProperties kafkaProperties;
+    private final int events;
+    private final int warmup;
+
+    public ProducerBenchmark(KafkaEventProducer producer,
+                             KafkaProperties kafkaProperties,
+                             @Value("${producer-bench.events:200000}") int events,
+                             @Value("${producer-bench.warmup:20000}") int warmup) {
+        this.producer = producer;
+        this.kafkaProperties = kafkaProperties;
+        this.events = events;
+        this.warmup = warmup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        KafkaProperties.Producer settings = kafkaProperties.getProducer();
+        System.out.println("⏱️ Producer benchmark: batch-size=" + settings.getBatchSize()
+                + ", linger.ms=" + settings.getProperties().getOrDefault("linger.ms", "default")
+                + ", compression=" + settings.getCompressionType()
+                + ", acks=" + settings.getAcks()
+                + ", idempotence=" + settings.getProperties().getOrDefault("enable.idempotence", "default"));
+
+        send(warmup, 0);
+        long start = System.nanoTime();
+        long rejected = send(events, warmup);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.println("⏱️ " + events + " events in " + String.format("%.2f", seconds) + " s: "
+                + String.format("%.0f", events / seconds) + " events/s, "
+                + rejected + " sends refused by the in-flight limit and retried");
+    }
+
+    /**
+     * Sends count events and waits for every ack
+     *
+     * @return number of ProducerBusyException retries
+     */
+    private long send(int count, int firstId) throws InterruptedException {
+        CountDownLatch acked = new CountDownLatch(count);
+        AtomicLong failed = new AtomicLong();
+        long rejected = 0;
+
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setId((long) firstId + i);
+            transaction.setSenderId((long) (i % 1000) + 1);
+            transaction.setReceiverId((long) (i % 997) + 1001);
+            transaction.setAmount(10.0 + i % 100);
+            transaction.setTimestamp(LocalDateTime.now());
+            transaction.setStatus("SUCCESS");
+
+            while (true) {
+                try {
+                    producer.sendTransactionEvent(String.valueOf(transaction.getId()), transaction)
+                            .whenComplete((result, ex) -> {
+                                if (ex != null) failed.incrementAndGet();
+                                acked.countDown();
+                            });
+                    break;
+                } catch (ProducerBusyException e) {
+                    rejected++;
+                }
+            }
+        }
+
+        if (!acked.await(10, TimeUnit.MINUTES)) {
+            System.err.println("❌ Producer benchmark timed out waiting for acks");
+        }
+        if (failed.get() > 0) {
+            System.err.println("❌ " + failed.get() + " benchmark sends failed");
+        }
+        return rejected;
+    }
+}
@@ -0,0 +1,12 @@
+package com.paypal.transaction_service.kafka;
+
+/**
+ * Backpressure from {@link KafkaEventProducer}: the in-flight limit was
+ * reached and the event was not sent. Retry once earlier sends are acked.
+ */
+public class ProducerBusyException extends RuntimeException {
+
+    public ProducerBusyException(int maxInFlight) {
+        super("Kafka producer busy: " + maxInFlight + " sends awaiting acks");
+    }
+}
@@ -0,0 +1,17 @@
+package com.paypal.transaction_service.repository;
+
+import com.paypal.transaction_service.entity.Account;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+
+public interface AccountRepository extends JpaRepository<Account, Long> {
+
+    // Bumps the version so writers holding the old balance fail their check and retry
+    @Modifying
+    @Query("update Account a set a.balance = a.balance + :delta, a.version = a.version + 1 where a.id = :id")
+    int addToBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
+}
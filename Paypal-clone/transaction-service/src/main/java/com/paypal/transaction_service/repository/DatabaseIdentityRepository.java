@@ -0,0 +1,7 @@
+package com.paypal.transaction_service.repository;
+
+import com.paypal.transaction_service.entity.DatabaseIdentity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DatabaseIdentityRepository extends JpaRepository<DatabaseIdentity, Integer> {
+}
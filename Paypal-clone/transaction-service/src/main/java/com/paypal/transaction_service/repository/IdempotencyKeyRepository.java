@@ -0,0 +1,25 @@
+package com.paypal.transaction_service.repository;
+
+import com.paypal.transaction_service.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * @return [key, transaction id, status, request hash] of the keys already used
+     */
+    @Query("select k.key, t.id, t.status, k.requestHash from IdempotencyKey k, Transaction t "
+            + "where t.id = k.transactionId and k.key in :keys")
+    List<Object[]> findTransactions(@Param("keys") Collection<String> keys);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
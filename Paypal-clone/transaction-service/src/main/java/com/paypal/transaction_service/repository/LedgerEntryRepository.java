@@ -0,0 +1,31 @@
+package com.paypal.transaction_service.repository;
+
+import com.paypal.transaction_service.entity.LedgerEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Oldest buffered entries as rows of id, accountId, amount
+     */
+    @Query("select e.id, e.accountId, e.amount from LedgerEntry e where e.applied = false order by e.id")
+    List<Object[]> findUnapplied(Limit limit);
+
+    @Query("select coalesce(sum(e.amount), 0) from LedgerEntry e where e.accountId = :accountId and e.applied = false")
+    BigDecimal sumUnapplied(@Param("accountId") Long accountId);
+
+    /**
+     * @return how many of the entries were still unapplied
+     */
+    @Modifying
+    @Query("update LedgerEntry e set e.applied = true where e.id in :ids and e.applied = false")
+    int markApplied(@Param("ids") Collection<Long> ids);
+}
@@ -1,8 +1,77 @@
 package com.paypal.transaction_service.repository;
 
+import com.paypal.transaction_service.dto.TransactionHistoryItem;
 import com.paypal.transaction_service.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    // Keyset pagination: seeks straight to the cursor through idx_transaction_timestamp_id
+    List<Transaction> findAllByOrderByTimestampAscIdAsc(Limit limit);
+
+    @Query("select t from Transaction t " +
+            "where t.timestamp > :timestamp or (t.timestamp = :timestamp and t.id > :id) " +
+            "order by t.timestamp asc, t.id asc")
+    List<Transaction> findPageAfter(@Param("timestamp") LocalDateTime timestamp,
+                                    @Param("id") Long id,
+                                    Limit limit);
+
+    // Must be consumed inside a transaction and closed
+    @Query("select t from Transaction t order by t.timestamp asc, t.id asc")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Transaction> streamAllOrdered();
+
+    // Archiving: see TransactionArchive
+
+    @Query("select min(t.timestamp) from Transaction t where t.timestamp >= :from")
+    LocalDateTime findOldestTimestampFrom(@Param("from") LocalDateTime from);
+
+    // Must be consumed inside a transaction and closed
+    @Query("select t from Transaction t where t.timestamp >= :from and t.timestamp < :to " +
+            "order by t.timestamp asc, t.id asc")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Transaction> streamRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query("delete from Transaction t where t.timestamp < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+
+    // Account history: each query is one range scan of its (account, timestamp) index
+
+    @Query("select new com.paypal.transaction_service.dto.TransactionHistoryItem(" +
+            "t.id, 'SENT', t.receiverId, t.amount, t.timestamp, t.status) " +
+            "from Transaction t " +
+            "where t.senderId = :userId and t.timestamp >= :from and t.timestamp < :to " +
+            "order by t.timestamp desc")
+    List<TransactionHistoryItem> findSentHistory(@Param("userId") Long userId,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 Limit limit);
+
+    @Query("select new com.paypal.transaction_service.dto.TransactionHistoryItem(" +
+            "t.id, 'RECEIVED', t.senderId, t.amount, t.timestamp, t.status) " +
+            "from Transaction t " +
+            "where t.receiverId = :userId and t.timestamp >= :from and t.timestamp < :to " +
+            "order by t.timestamp desc")
+    List<TransactionHistoryItem> findReceivedHistory(@Param("userId") Long userId,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to,
+                                                     Limit limit);
 }
@@ -0,0 +1,201 @@
+package com.paypal.transaction_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypal.transaction_service.dto.TransactionRequestStatus;
+import com.paypal.transaction_service.entity.IdempotencyKey;
+import com.paypal.transaction_service.entity.Transaction;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.NoOpResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates accepted with Prefer: respond-async.
+ * - The request is queued for a fixed pool of workers and answered at
+ *   once; a full queue refuses it with {@link RejectedExecutionException}
+ *   rather than holding the caller
+ * - Workers run the usual create, idempotency included, and mostly wait
+ *   on TransactionWriter, which batches their writes with everyone else's
+ * - Outcomes are kept for retention-seconds under a random request id, for
+ *   polling and long-polling
+ * - A callback URL, if given, is POSTed the final status once, on its own
+ *   small pool so a slow receiver cannot stall the workers. Only hosts
+ *   allowed by {@link CallbackTargets} are called, redirects are not
+ *   followed and the receiver's response body is never read
+ */
+@Service
+public class AsyncTransactionService {
+
+    private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService callbacks;
+    private final RestTemplate callbackClient;
+    private final CallbackTargets callbackTargets;
+    private final Cache<String, CompletableFuture<Transaction>> requests;
+
+    public AsyncTransactionService(TransactionService transactionService,
+                                   IdempotencyService idempotencyService,
+                                   CallbackTargets callbackTargets,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${transaction.async.workers:100}") int workerCount,
+                                   @Value("${transaction.async.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${transaction.async.retention-seconds:600}") long retentionSeconds,
+                                   @Value("${transaction.async.callback-threads:2}") int callbackThreads,
+                                   @Value("${transaction.async.callback-timeout-ms:2000}") int callbackTimeoutMs) {
+        this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
+        this.callbackTargets = callbackTargets;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), named("transaction-async-"));
+        this.callbacks = new ThreadPoolExecutor(callbackThreads, callbackThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), named("transaction-callback-"),
+                (task, executor) -> System.err.println("❌ Callback queue full, dropping a notification"));
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                // A redirect could lead anywhere, past the host check
+                connection.setInstanceFollowRedirects(false);
+            }
+        };
+        requestFactory.setConnectTimeout(callbackTimeoutMs);
+        requestFactory.setReadTimeout(callbackTimeoutMs);
+        this.callbackClient = new RestTemplate(requestFactory);
+        // Statuses are checked in notify(), so error bodies are never read
+        this.callbackClient.setErrorHandler(new NoOpResponseErrorHandler());
+        this.requests = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(retentionSeconds))
+                .build();
+        Gauge.builder("transaction.async.queued", workers, executor -> executor.getQueue().size())
+                .description("Accepted async creates waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return whether submit() may be given this callback URL
+     */
+    public boolean acceptsCallback(URI callbackUrl) {
+        return callbackTargets.allows(callbackUrl);
+    }
+
+    /**
+     * @param callbackUrl http(s) URL to POST the final status to, or null; see {@link #acceptsCallback}
+     * @throws RejectedExecutionException if queue-capacity requests are already waiting
+     */
+    public TransactionRequestStatus submit(Transaction transaction, String idempotencyKey, URI callbackUrl) {
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        requests.put(requestId, result);
+        try {
+            workers.execute(() -> {
+                try {
+                    result.complete(idempotencyKey == null
+                            ? transactionService.createTransaction(transaction)
+                            : idempotencyService.execute(idempotencyKey,
+                                    IdempotencyKey.requestHash(transaction.getSenderId(), transaction.getReceiverId(), transaction.getAmount()),
+                                    () -> transactionService.createTransaction(transaction, idempotencyKey)));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            requests.invalidate(requestId);
+            throw e;
+        }
+        if (callbackUrl != null) {
+            result.whenComplete((saved, ex) -> callbacks.execute(() -> notify(callbackUrl, statusOf(requestId, result))));
+        }
+        return new TransactionRequestStatus(requestId, TransactionRequestStatus.PENDING, null, null);
+    }
+
+    /**
+     * @return the current status, or null if the id is unknown or has expired
+     */
+    public TransactionRequestStatus getStatus(String requestId) {
+        CompletableFuture<Transaction> result = requests.getIfPresent(requestId);
+        return result != null ? statusOf(requestId, result) : null;
+    }
+
+    /**
+     * Completes with the final status once the request settles; never
+     * completes for an unknown id, so pair it with {@link #getStatus}
+     */
+    public CompletableFuture<TransactionRequestStatus> awaitStatus(String requestId) {
+        CompletableFuture<Transaction> result = requests.getIfPresent(requestId);
+        if (result == null) return new CompletableFuture<>();
+        return result.handle((saved, ex) -> statusOf(requestId, result));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+        callbacks.shutdown();
+        callbacks.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static TransactionRequestStatus statusOf(String requestId, CompletableFuture<Transaction> result) {
+        if (!result.isDone()) {
+            return new TransactionRequestStatus(requestId, TransactionRequestStatus.PENDING, null, null);
+        }
+        try {
+            Transaction saved = result.join();
+            return new TransactionRequestStatus(requestId, saved.getStatus(), saved.getId(), null);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new TransactionRequestStatus(requestId, LedgerService.FAILED, null, cause.getMessage());
+        }
+    }
+
+    private void notify(URI callbackUrl, TransactionRequestStatus status) {
+        // Checked again: the host may resolve elsewhere by now
+        if (!callbackTargets.allows(callbackUrl)) {
+            System.err.println("❌ Callback for request " + status.getRequestId() + " refused: "
+                    + callbackUrl.getHost() + " is not an allowed callback host");
+            return;
+        }
+        // Not retried either way; the status stays available for polling
+        try {
+            HttpStatusCode code = callbackClient.postForEntity(callbackUrl, status, Void.class).getStatusCode();
+            if (!code.is2xxSuccessful()) {
+                System.err.println("❌ Callback to " + callbackUrl.getHost() + " for request " + status.getRequestId()
+                        + " answered " + code.value());
+            }
+        } catch (RestClientException e) {
+            System.err.println("❌ Callback to " + callbackUrl.getHost() + " for request " + status.getRequestId()
+                    + " failed: " + e.getClass().getSimpleName());
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
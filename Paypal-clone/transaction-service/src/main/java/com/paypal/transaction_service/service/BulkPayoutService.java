@@ -0,0 +1,280 @@
+package com.paypal.transaction_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.paypal.transaction_service.dto.PayoutResult;
+import com.paypal.transaction_service.entity.IdempotencyKey;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * One-to-many transfers from a single sender, read from an NDJSON or CSV
+ * stream of receiver and amount pairs and answered line by line.
+ * - Lines are read chunk-size at a time; the valid transfers of a chunk are
+ *   written by {@link TransactionWriter#writeAll} as one batch, so their
+ *   inserts go out as JDBC batches and their outbox rows are published
+ *   together by OutboxRelay
+ * - A chunk's results are written in input order and flushed once it
+ *   commits; only one chunk is held at a time, whatever the stream's size
+ * - Every line counts towards the sender's velocity.max-amount-per-day;
+ *   the payout is one request, so not towards transfers per minute
+ * - With an Idempotency-Key, line n is stored under "key#n", so resending
+ *   the same stream reports the lines already written instead of paying
+ *   them twice
+ */
+@Service
+public class BulkPayoutService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final int MAX_LINE_LENGTH = 1024;
+
+    private final TransactionWriter transactionWriter;
+    private final VelocityLimiter velocityLimiter;
+    private final IdempotencyKeyRepository keyRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+
+    public BulkPayoutService(TransactionWriter transactionWriter,
+                             VelocityLimiter velocityLimiter,
+                             IdempotencyKeyRepository keyRepository,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${transaction.bulk.chunk-size:500}") int chunkSize) {
+        this.transactionWriter = transactionWriter;
+        this.velocityLimiter = velocityLimiter;
+        this.keyRepository = keyRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param idempotencyKey prefix of the per-line keys, or null
+     * @return number of result lines written
+     */
+    public long payout(long senderId, Format format, String idempotencyKey,
+                       InputStream in, OutputStream out) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ObjectWriter writer = objectMapper.writerFor(PayoutResult.class);
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        StringBuilder text = new StringBuilder();
+        long lineNumber = 0;
+        long written = 0;
+        boolean firstLine = true;
+
+        while (readLine(reader, text)) {
+            lineNumber++;
+            if (text.toString().isBlank()) continue;
+            // A CSV may start with a header row
+            boolean header = firstLine && format == Format.CSV && isCsvHeader(text);
+            firstLine = false;
+            if (header) continue;
+
+            chunk.add(parse(lineNumber, text, senderId, format));
+            if (chunk.size() == chunkSize) {
+                written += settle(chunk, senderId, idempotencyKey, writer, out);
+                chunk.clear();
+            }
+        }
+        written += settle(chunk, senderId, idempotencyKey, writer, out);
+        System.out.println("📦 Bulk payout from " + senderId + ": " + written + " lines");
+        return written;
+    }
+
+    private int settle(List<Line> chunk, long senderId, String idempotencyKey,
+                       ObjectWriter writer, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) return 0;
+
+        if (idempotencyKey != null) {
+            reportAlreadyWritten(chunk, idempotencyKey);
+        }
+
+        List<Line> toWrite = new ArrayList<>(chunk.size());
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        List<String> keys = idempotencyKey != null ? new ArrayList<>(chunk.size()) : null;
+        for (Line line : chunk) {
+            if (line.result != null) continue;
+            try {
+                line.countedAt = velocityLimiter.acquirePayout(senderId, line.transaction.getAmount());
+            } catch (VelocityLimitExceededException e) {
+                line.result = new PayoutResult(line.number, PayoutResult.REJECTED, null, e.getMessage());
+                continue;
+            }
+            toWrite.add(line);
+            transactions.add(line.transaction);
+            if (keys != null) keys.add(line.key);
+        }
+
+        List<CompletableFuture<Transaction>> results = transactionWriter.writeAll(transactions, keys);
+        for (int i = 0; i < toWrite.size(); i++) {
+            Line line = toWrite.get(i);
+            try {
+                Transaction saved = results.get(i).join();
+                line.result = new PayoutResult(line.number, saved.getStatus(), saved.getId(), null);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                line.result = new PayoutResult(line.number, PayoutResult.ERROR, null, cause.getMessage());
+            }
+            // Only transfers that moved money count towards the sender's limits
+            if (!LedgerService.SUCCESS.equals(line.result.getStatus())) {
+                velocityLimiter.releasePayout(senderId, line.transaction.getAmount(), line.countedAt);
+            }
+        }
+
+        for (Line line : chunk) {
+            out.write(writer.writeValueAsBytes(line.result));
+            out.write('\n');
+            meterRegistry.counter("transaction.bulk.lines", "status", line.result.getStatus()).increment();
+        }
+        out.flush();
+        return chunk.size();
+    }
+
+    private void reportAlreadyWritten(List<Line> chunk, String idempotencyKey) {
+        Map<String, Line> byKey = new HashMap<>();
+        for (Line line : chunk) {
+            if (line.result != null) continue;
+            line.key = idempotencyKey + "#" + line.number;
+            byKey.put(line.key, line);
+        }
+        if (byKey.isEmpty()) return;
+        for (Object[] row : keyRepository.findTransactions(byKey.keySet())) {
+            Line line = byKey.get((String) row[0]);
+            String storedHash = (String) row[3];
+            Transaction transaction = line.transaction;
+            if (storedHash != null && !storedHash.equals(IdempotencyKey.requestHash(
+                    transaction.getSenderId(), transaction.getReceiverId(), transaction.getAmount()))) {
+                // Resent with another line in this position; the first one stands
+                line.result = new PayoutResult(line.number, PayoutResult.REJECTED, (Long) row[1],
+                        new IdempotencyKeyReusedException(line.key).getMessage());
+            } else {
+                line.result = new PayoutResult(line.number, (String) row[2], (Long) row[1], null);
+            }
+        }
+    }
+
+    private Line parse(long number, CharSequence text, long senderId, Format format) {
+        Line line = new Line(number);
+        if (text.length() > MAX_LINE_LENGTH) {
+            line.result = invalid(number, "line longer than " + MAX_LINE_LENGTH + " characters");
+            return line;
+        }
+
+        long receiverId;
+        double amount;
+        if (format == Format.CSV) {
+            String[] fields = text.toString().split(",", -1);
+            if (fields.length != 2) {
+                line.result = invalid(number, "expected receiverId,amount");
+                return line;
+            }
+            try {
+                receiverId = Long.parseLong(fields[0].trim());
+                amount = Double.parseDouble(fields[1].trim());
+            } catch (NumberFormatException e) {
+                line.result = invalid(number, "expected receiverId,amount");
+                return line;
+            }
+        } else {
+            try {
+                JsonNode node = objectMapper.readTree(text.toString());
+                JsonNode receiver = node.get("receiverId");
+                JsonNode value = node.get("amount");
+                if (receiver == null || !receiver.canConvertToExactIntegral() || value == null || !value.isNumber()) {
+                    line.result = invalid(number, "expected {\"receiverId\":<id>,\"amount\":<amount>}");
+                    return line;
+                }
+                receiverId = receiver.asLong();
+                amount = value.asDouble();
+            } catch (IOException e) {
+                line.result = invalid(number, "malformed JSON");
+                return line;
+            }
+        }
+
+        if (receiverId <= 0) {
+            line.result = invalid(number, "receiverId must be positive");
+        } else if (receiverId == senderId) {
+            line.result = invalid(number, "senderId and receiverId must differ");
+        } else if (!(amount > 0) || Double.isInfinite(amount)) {
+            line.result = invalid(number, "Amount must be positive");
+        } else {
+            Transaction transaction = new Transaction();
+            transaction.setSenderId(senderId);
+            transaction.setReceiverId(receiverId);
+            transaction.setAmount(amount);
+            transaction.setTimestamp(LocalDateTime.now());
+            // Settled to SUCCESS or FAILED by the ledger when written
+            transaction.setStatus("PENDING");
+            line.transaction = transaction;
+        }
+        return line;
+    }
+
+    private static boolean isCsvHeader(CharSequence text) {
+        String first = text.toString().split(",", 2)[0].trim();
+        try {
+            Long.parseLong(first);
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static PayoutResult invalid(long number, String error) {
+        return new PayoutResult(number, PayoutResult.INVALID, null, error);
+    }
+
+    /**
+     * Reads the next line into text, keeping at most one character past
+     * MAX_LINE_LENGTH so an oversized line cannot grow the buffer
+     *
+     * @return false at the end of the stream
+     */
+    private static boolean readLine(Reader reader, StringBuilder text) throws IOException {
+        text.setLength(0);
+        int c = reader.read();
+        if (c < 0) return false;
+        while (c >= 0 && c != '\n') {
+            if (text.length() <= MAX_LINE_LENGTH) text.append((char) c);
+            c = reader.read();
+        }
+        if (text.length() > 0 && text.charAt(text.length() - 1) == '\r') {
+            text.setLength(text.length() - 1);
+        }
+        return true;
+    }
+
+    private static final class Line {
+        final long number;
+        Transaction transaction;
+        String key;
+        long countedAt;
+        PayoutResult result;
+
+        Line(long number) {
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.paypal.transaction_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decides which hosts async-create callbacks may be sent to, so a
+ * Callback-Url cannot point the service at its own network.
+ * - transaction.async.callback-hosts, if set, lists the only hosts allowed;
+ *   "*.example.com" allows any subdomain of example.com
+ * - Every address the host resolves to must be public: loopback, private,
+ *   link-local (cloud metadata included), carrier-grade NAT, unique-local
+ *   and multicast addresses are refused unless callback-allow-private is set
+ * Checked when the request is accepted and again right before sending. The
+ * JVM caches the lookup, so the connection goes to the address checked.
+ */
+@Component
+public class CallbackTargets {
+
+    private final List<String> hosts;
+    private final List<String> domains;
+    private final boolean allowPrivate;
+
+    public CallbackTargets(@Value("${transaction.async.callback-hosts:}") String[] allowedHosts,
+                           @Value("${transaction.async.callback-allow-private:false}") boolean allowPrivate) {
+        this.hosts = new ArrayList<>();
+        this.domains = new ArrayList<>();
+        for (String host : allowedHosts) {
+            String normalized = host.trim().toLowerCase(Locale.ROOT);
+            if (normalized.startsWith("*.")) {
+                domains.add(normalized.substring(1));
+            } else if (!normalized.isEmpty()) {
+                hosts.add(normalized);
+            }
+        }
+        this.allowPrivate = allowPrivate;
+    }
+
+    /**
+     * @return whether the URL's host is allowed and resolves only to allowed addresses
+     */
+    public boolean allows(URI callbackUrl) {
+        String host = callbackUrl.getHost();
+        if (host == null || !isListed(host.toLowerCase(Locale.ROOT))) return false;
+        try {
+            for (InetAddress address : InetAddress.getAllByName(host)) {
+                if (!allowPrivate && !isPublic(address)) return false;
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private boolean isListed(String host) {
+        if (hosts.isEmpty() && domains.isEmpty()) return true;
+        if (hosts.contains(host)) return true;
+        for (String domain : domains) {
+            if (host.endsWith(domain)) return true;
+        }
+        return false;
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            // 0.0.0.0/8 and carrier-grade NAT 100.64.0.0/10
+            return first != 0 && !(first == 100 && second >= 64 && second < 128);
+        }
+        // Unique-local fc00::/7
+        return (bytes[0] & 0xfe) != 0xfc;
+    }
+}
@@ -0,0 +1,12 @@
+package com.paypal.transaction_service.service;
+
+/**
+ * An Idempotency-Key came back with a different request than the one it was
+ * first used for; nothing was written. Answered with 422 Unprocessable Entity.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency-Key " + key + " was already used for a different request");
+    }
+}
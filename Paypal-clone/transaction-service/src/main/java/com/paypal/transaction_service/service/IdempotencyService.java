@@ -0,0 +1,151 @@
+package com.paypal.transaction_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypal.transaction_service.entity.IdempotencyKey;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.IdempotencyKeyRepository;
+import com.paypal.transaction_service.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a create request at most once per Idempotency-Key.
+ * - A bounded, expiring in-memory cache maps each key to the future of its
+ *   first execution; concurrent duplicates wait on that future and repeats
+ *   are answered from memory
+ * - The action must persist the key with its Transaction (see
+ *   {@link TransactionWriter}), so repeats still resolve after eviction, a
+ *   restart, or on another instance
+ * - A failed execution is forgotten, so the client may retry it
+ * - Each key is bound to a hash of the request that first used it; a repeat
+ *   with another payload is refused with {@link IdempotencyKeyReusedException}
+ */
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyKeyRepository keyRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, Execution> recent;
+    private final Duration retention;
+    private final Counter replayed;
+    private final Counter reused;
+    private final Counter purged;
+
+    public IdempotencyService(IdempotencyKeyRepository keyRepository,
+                              TransactionRepository transactionRepository,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.cache-size:100000}") long cacheSize,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours) {
+        this.keyRepository = keyRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = Duration.ofHours(retentionHours);
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(retention)
+                .build();
+        this.replayed = Counter.builder("idempotency.replayed")
+                .description("Repeated requests answered with the result of the first")
+                .register(meterRegistry);
+        this.reused = Counter.builder("idempotency.reused")
+                .description("Keys refused because they came back with a different request")
+                .register(meterRegistry);
+        this.purged = Counter.builder("idempotency.purged")
+                .description("Expired keys deleted from the table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param requestHash {@link IdempotencyKey#requestHash} of the request
+     * @throws IdempotencyKeyReusedException if the key was first used for another request
+     */
+    public Transaction execute(String key, String requestHash, Supplier<Transaction> action) {
+        CompletableFuture<Transaction> mine = new CompletableFuture<>();
+        Execution execution = new Execution(requestHash, mine);
+        Execution first = recent.asMap().putIfAbsent(key, execution);
+        if (first != null) {
+            if (!first.requestHash.equals(requestHash)) {
+                reused.increment();
+                throw new IdempotencyKeyReusedException(key);
+            }
+            replayed.increment();
+            return await(first.result);
+        }
+
+        try {
+            Transaction result = findCompleted(key, requestHash).orElseGet(() -> runOnce(key, requestHash, action));
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            recent.asMap().remove(key, execution);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> keyRepository.deleteOlderThan(cutoff));
+        if (deleted != null) {
+            purged.increment(deleted);
+        }
+    }
+
+    private Transaction runOnce(String key, String requestHash, Supplier<Transaction> action) {
+        try {
+            return action.get();
+        } catch (DataIntegrityViolationException e) {
+            // Another instance committed the same key first; our insert was rolled back
+            return findCompleted(key, requestHash).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<Transaction> findCompleted(String key, String requestHash) {
+        Optional<IdempotencyKey> stored = keyRepository.findById(key);
+        if (stored.isEmpty()) return Optional.empty();
+        String storedHash = stored.get().getRequestHash();
+        if (storedHash != null && !storedHash.equals(requestHash)) {
+            reused.increment();
+            throw new IdempotencyKeyReusedException(key);
+        }
+        replayed.increment();
+        return transactionRepository.findById(stored.get().getTransactionId());
+    }
+
+    private static Transaction await(CompletableFuture<Transaction> first) {
+        try {
+            return first.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Execution {
+        final String requestHash;
+        final CompletableFuture<Transaction> result;
+
+        Execution(String requestHash, CompletableFuture<Transaction> result) {
+            this.requestHash = requestHash;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.paypal.transaction_service.service;
+
+import com.paypal.transaction_service.dto.AccountBalance;
+import com.paypal.transaction_service.entity.Account;
+import com.paypal.transaction_service.entity.LedgerEntry;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.AccountRepository;
+import com.paypal.transaction_service.repository.LedgerEntryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Double-entry postings for transfers.
+ * - A transfer succeeds only if the sender's balance covers it; otherwise it
+ *   is stored as FAILED and posts nothing
+ * - Balances are updated under optimistic locking (Account.version), so
+ *   concurrent writers retry instead of overwriting each other
+ * - Credits to hot accounts are not applied to the balance row. They are
+ *   appended as unapplied entries and folded in by sweep(), so a popular
+ *   receiver costs one row update per sweep instead of one per transfer.
+ *   Buffered credits are not spendable until swept.
+ * The external account funds deposits; it may go negative and all of its
+ * postings are buffered.
+ */
+@Service
+public class LedgerService {
+
+    public static final long EXTERNAL_ACCOUNT_ID = 0L;
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    private final AccountRepository accountRepository;
+    private final LedgerEntryRepository entryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> hotAccounts;
+    // Accounts are never deleted, so an id seen once needs no further lookups
+    private final Set<Long> knownAccounts;
+    private final int sweepBatchSize;
+
+    public LedgerService(AccountRepository accountRepository,
+                         LedgerEntryRepository entryRepository,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${ledger.hot-accounts:}") Long[] hotAccounts,
+                         @Value("${ledger.sweep-batch-size:5000}") int sweepBatchSize) {
+        this.accountRepository = accountRepository;
+        this.entryRepository = entryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.hotAccounts = new HashSet<>(List.of(hotAccounts));
+        this.hotAccounts.add(EXTERNAL_ACCOUNT_ID);
+        this.knownAccounts = ConcurrentHashMap.newKeySet();
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    /**
+     * Creates missing accounts with a zero balance, each in its own DB
+     * transaction. Must be called outside the transaction that posts to them.
+     */
+    public void ensureAccounts(Collection<Long> accountIds) {
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : accountIds) {
+            if (!knownAccounts.contains(id)) unknown.add(id);
+        }
+        if (unknown.isEmpty()) return;
+
+        Set<Long> missing = new HashSet<>(unknown);
+        for (Account account : accountRepository.findAllById(unknown)) {
+            missing.remove(account.getId());
+        }
+        for (Long id : missing) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> accountRepository.save(new Account(id)));
+            } catch (DataIntegrityViolationException e) {
+                // Created concurrently by another writer
+            }
+        }
+        knownAccounts.addAll(unknown);
+    }
+
+    /**
+     * Sets each transaction's status and moves the balances of the successful
+     * ones, in list order. Must run inside the DB transaction that inserts them.
+     *
+     * @return the ledger entries to insert along with the transactions
+     */
+    public List<LedgerEntry> post(List<Transaction> transactions) {
+        Set<Long> toLoad = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (!isBuffered(transaction.getSenderId(), -1)) toLoad.add(transaction.getSenderId());
+            if (!isBuffered(transaction.getReceiverId(), 1)) toLoad.add(transaction.getReceiverId());
+        }
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Account account : accountRepository.findAllById(toLoad)) {
+            accounts.put(account.getId(), account);
+        }
+
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            BigDecimal amount = BigDecimal.valueOf(transaction.getAmount());
+            Long senderId = transaction.getSenderId();
+            Long receiverId = transaction.getReceiverId();
+
+            if (senderId != EXTERNAL_ACCOUNT_ID && accounts.get(senderId).getBalance().compareTo(amount) < 0) {
+                transaction.setStatus(FAILED);
+                continue;
+            }
+            transaction.setStatus(SUCCESS);
+            entries.add(apply(transaction, accounts, senderId, amount.negate()));
+            entries.add(apply(transaction, accounts, receiverId, amount));
+        }
+        return entries;
+    }
+
+    /**
+     * Folds buffered entries into their account balances, oldest first
+     */
+    @Scheduled(fixedDelayString = "${ledger.sweep-interval-ms:100}")
+    public void sweep() {
+        int applied;
+        do {
+            applied = sweepBatch();
+            // Keep draining while batches come back full
+        } while (applied == sweepBatchSize);
+    }
+
+    /**
+     * Marks exactly the entries it summed: pooled sequence ids are not
+     * committed in order, so "every entry up to id n" could skip one.
+     * Entries are claimed before any balance moves; if another sweeper
+     * (another instance) claimed some of them first, the batch rolls back.
+     *
+     * @return number of entries applied
+     */
+    int sweepBatch() {
+        Integer applied = transactionTemplate.execute(status -> {
+            List<Object[]> rows = entryRepository.findUnapplied(Limit.of(sweepBatchSize));
+            if (rows.isEmpty()) return 0;
+
+            List<Long> ids = new ArrayList<>(rows.size());
+            // Sorted so balance rows are always locked in the same order as in post()
+            Map<Long, BigDecimal> deltas = new TreeMap<>();
+            for (Object[] row : rows) {
+                ids.add((Long) row[0]);
+                deltas.merge((Long) row[1], (BigDecimal) row[2], BigDecimal::add);
+            }
+            if (entryRepository.markApplied(ids) != ids.size()) {
+                status.setRollbackOnly();
+                return 0;
+            }
+            deltas.forEach(accountRepository::addToBalance);
+            return rows.size();
+        });
+        return applied != null ? applied : 0;
+    }
+
+    public AccountBalance getBalance(Long accountId) {
+        BigDecimal balance = accountRepository.findById(accountId)
+                .map(Account::getBalance)
+                .orElse(BigDecimal.ZERO);
+        return new AccountBalance(accountId, balance, entryRepository.sumUnapplied(accountId));
+    }
+
+    private LedgerEntry apply(Transaction transaction, Map<Long, Account> accounts, Long accountId, BigDecimal amount) {
+        if (isBuffered(accountId, amount.signum())) {
+            return new LedgerEntry(transaction, accountId, amount, false);
+        }
+        Account account = accounts.get(accountId);
+        account.setBalance(account.getBalance().add(amount));
+        return new LedgerEntry(transaction, accountId, amount, true);
+    }
+
+    private boolean isBuffered(Long accountId, int sign) {
+        return hotAccounts.contains(accountId) && (sign > 0 || accountId == EXTERNAL_ACCOUNT_ID);
+    }
+}
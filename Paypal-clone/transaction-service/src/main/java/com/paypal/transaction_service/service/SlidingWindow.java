@@ -0,0 +1,103 @@
+package com.paypal.transaction_service.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sum over the last bucketCount * bucketMillis milliseconds, kept in a
+ * fixed ring of time buckets with a running total.
+ * Buckets are numbered from the epoch, so a window restored from a
+ * checkpoint ages out correctly. Not thread-safe; {@link VelocityLimiter}
+ * guards each window with its stripe lock.
+ */
+final class SlidingWindow {
+
+    private final long[] buckets;
+    private final long bucketMillis;
+    // Epoch bucket number (time / bucketMillis) of the newest bucket
+    private long head;
+    private long total;
+
+    SlidingWindow(int bucketCount, long bucketMillis) {
+        this.buckets = new long[bucketCount];
+        this.bucketMillis = bucketMillis;
+    }
+
+    long sum(long now) {
+        advance(now);
+        return total;
+    }
+
+    void add(long now, long value) {
+        advance(now);
+        buckets[index(head)] += value;
+        total += value;
+    }
+
+    /**
+     * Takes back a value added at time {@code at}, unless it has already left the window
+     */
+    void subtract(long now, long at, long value) {
+        advance(now);
+        long bucket = at / bucketMillis;
+        if (bucket > head || bucket <= head - buckets.length) return;
+        buckets[index(bucket)] -= value;
+        total -= value;
+    }
+
+    /**
+     * @return milliseconds until adding value keeps the sum within limit,
+     * 0 if it already does, -1 if value alone exceeds limit
+     */
+    long millisUntilFits(long now, long value, long limit) {
+        advance(now);
+        if (value > limit) return -1;
+        long excess = total + value - limit;
+        if (excess <= 0) return 0;
+        // Oldest first: bucket b leaves the window at (b + bucketCount) * bucketMillis
+        for (long b = head - buckets.length + 1; b <= head; b++) {
+            excess -= buckets[index(b)];
+            if (excess <= 0) return (b + buckets.length) * bucketMillis - now;
+        }
+        return buckets.length * bucketMillis;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(head);
+        for (long bucket : buckets) {
+            out.writeLong(bucket);
+        }
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        head = in.readLong();
+        total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = in.readLong();
+            total += buckets[i];
+        }
+    }
+
+    private void advance(long now) {
+        long bucket = now / bucketMillis;
+        // A clock stepping back keeps adding to the newest bucket
+        if (bucket <= head) return;
+        if (bucket - head >= buckets.length) {
+            Arrays.fill(buckets, 0);
+            total = 0;
+        } else {
+            for (long b = head + 1; b <= bucket; b++) {
+                int i = index(b);
+                total -= buckets[i];
+                buckets[i] = 0;
+            }
+        }
+        head = bucket;
+    }
+
+    private int index(long bucket) {
+        return Math.floorMod(bucket, buckets.length);
+    }
+}
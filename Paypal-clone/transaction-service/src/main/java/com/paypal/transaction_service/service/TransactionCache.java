@@ -0,0 +1,54 @@
+package com.paypal.transaction_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypal.transaction_service.entity.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of transactions by id, so clients polling a
+ * transfer's status are answered from memory.
+ * - Filled with each transaction once its write commits, already settled
+ *   to SUCCESS or FAILED, and on lookup misses
+ * - Anything that changes a stored transaction must call {@link #evict};
+ *   expiry bounds how stale an entry can get should one be missed
+ * - Hits, misses and evictions are published as cache.* meters tagged
+ *   cache=transaction.by-id
+ */
+@Component
+public class TransactionCache {
+
+    private final Cache<Long, Transaction> cache;
+
+    public TransactionCache(@Value("${transaction.cache.maximum-size:100000}") long maximumSize,
+                            @Value("${transaction.cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "transaction.by-id");
+    }
+
+    /**
+     * @param loader called at most once per id on a miss; a null result is not cached
+     */
+    public Transaction get(Long id, Function<Long, Transaction> loader) {
+        return cache.get(id, loader);
+    }
+
+    public void put(Transaction transaction) {
+        cache.put(transaction.getId(), transaction);
+    }
+
+    public void evict(Long id) {
+        cache.invalidate(id);
+    }
+}
@@ -1,12 +1,48 @@
 package com.paypal.transaction_service.service;
 
+import com.paypal.transaction_service.dto.AccountBalance;
+import com.paypal.transaction_service.dto.TransactionHistoryItem;
+import com.paypal.transaction_service.dto.TransactionPage;
 import com.paypal.transaction_service.entity.Transaction;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TransactionService {
 
     Transaction createTransaction(Transaction transaction);
 
+    Transaction createTransaction(Transaction transaction, String idempotencyKey);
+
+    /**
+     * Credits the user from the external account
+     *
+     * @param idempotencyKey stored with the transaction, or null
+     */
+    Transaction deposit(Long userId, Double amount, String idempotencyKey);
+
+    AccountBalance getBalance(Long userId);
+
+    /**
+     * Served from TransactionCache when possible, then the table, then the archive
+     *
+     * @return null if there is no such transaction
+     */
+    Transaction getTransaction(Long id);
+
     List<Transaction> getAllTransactions();
+
+    TransactionPage getTransactionsPage(String afterCursor, int limit);
+
+    long exportTransactions(OutputStream out) throws IOException;
+
+    /**
+     * Newest first, within [from, to); either bound may be null
+     *
+     * @param direction sent, received or all
+     */
+    List<TransactionHistoryItem> getAccountHistory(Long userId, String direction,
+                                                   LocalDateTime from, LocalDateTime to, int limit);
 }
@@ -2,84 +2,297 @@ package com.paypal.transaction_service.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.paypal.transaction_service.archive.ArchiveSnapshot;
+import com.paypal.transaction_service.archive.TransactionArchive;
+import com.paypal.transaction_service.dto.AccountBalance;
+import com.paypal.transaction_service.dto.TransactionHistoryItem;
+import com.paypal.transaction_service.dto.TransactionPage;
 import com.paypal.transaction_service.dto.TransferRequest;
 import com.paypal.transaction_service.entity.Transaction;
-import com.paypal.transaction_service.kafka.KafkaEventProducer;
 import com.paypal.transaction_service.repository.TransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
 
 @Service
 public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository repository;
     private final ObjectMapper objectMapper;
-    private final KafkaEventProducer kafkaEventProducer;
+    private final TransactionWriter transactionWriter;
+    private final EntityManager entityManager;
+    private final LedgerService ledgerService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionArchive archive;
+    private final TransactionCache transactionCache;
+    private final VelocityLimiter velocityLimiter;
+    private final DistributionSummary exportedRows;
+
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 1, 1, 0, 0);
 
     //@Autowired
     //private RestTemplate restTemplate;
 
     public TransactionServiceImpl(TransactionRepository repository,
-                                  KafkaEventProducer kafkaEventProducer,
-                                  ObjectMapper objectMapper) {
+                                  TransactionWriter transactionWriter,
+                                  ObjectMapper objectMapper,
+                                  EntityManager entityManager,
+                                  LedgerService ledgerService,
+                                  MeterRegistry meterRegistry,
+                                  TransactionArchive archive,
+                                  TransactionCache transactionCache,
+                                  VelocityLimiter velocityLimiter) {
         this.repository = repository;
         this.objectMapper = objectMapper;
-        this.kafkaEventProducer = kafkaEventProducer;
+        this.transactionWriter = transactionWriter;
+        this.entityManager = entityManager;
+        this.ledgerService = ledgerService;
+        this.meterRegistry = meterRegistry;
+        this.archive = archive;
+        this.transactionCache = transactionCache;
+        this.velocityLimiter = velocityLimiter;
+        this.exportedRows = DistributionSummary.builder("transaction.export.rows")
+                .description("Transactions written per export")
+                .register(meterRegistry);
     }
 
 
 
     @Override
     public Transaction createTransaction(Transaction request) {
-        System.out.println("🚀 Entered createTransaction()");
+        return createTransaction(request, null);
+    }
 
+    @Override
+    public Transaction createTransaction(Transaction request, String idempotencyKey) {
         Long senderId = request.getSenderId();
         Long receiverId = request.getReceiverId();
         Double amount = request.getAmount();
 
-
-
-
         Transaction transaction = new Transaction();
         transaction.setSenderId(senderId);
         transaction.setReceiverId(receiverId);
         transaction.setAmount(amount);
         transaction.setTimestamp(LocalDateTime.now());
-        transaction.setStatus("SUCCESS");
-
-        System.out.println("📥 Incoming Transaction object: " + transaction);
+        // Settled to SUCCESS or FAILED by the ledger when written
+        transaction.setStatus("PENDING");
 
-        Transaction saved = repository.save(transaction);
-        System.out.println("💾 Saved Transaction from DB: " + saved);
+        // Deposits come from outside the system and are not velocity-limited
+        boolean limited = senderId != LedgerService.EXTERNAL_ACCOUNT_ID;
+        long countedAt = limited ? velocityLimiter.acquire(senderId, amount) : 0;
 
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-//            String eventPayload = objectMapper.writeValueAsString(saved);
-//            String key = String.valueOf(saved.getId());
-//            kafkaEventProducer.sendTransactionEvent(key, eventPayload);
+            Transaction saved = transactionWriter.write(transaction, idempotencyKey);
+            outcome = saved.getStatus();
+            transactionCache.put(saved);
+            return saved;
+        } finally {
+            // Only transfers that moved money count towards the sender's limits
+            if (limited && !LedgerService.SUCCESS.equals(outcome)) {
+                velocityLimiter.release(senderId, amount, countedAt);
+            }
+            sample.stop(meterRegistry.timer("transaction.create", "outcome", outcome));
+        }
+    }
 
-            String key = String.valueOf(saved.getId());
-            kafkaEventProducer.sendTransactionEvent(key, saved); // send actual object!
+    @Override
+    public Transaction deposit(Long userId, Double amount, String idempotencyKey) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderId(LedgerService.EXTERNAL_ACCOUNT_ID);
+        transaction.setReceiverId(userId);
+        transaction.setAmount(amount);
+        return createTransaction(transaction, idempotencyKey);
+    }
 
-            System.out.println("🚀 Kafka message sent");
-        } catch (Exception e) {
-            System.err.println("❌ Failed to send Kafka event: " + e.getMessage());
-            e.printStackTrace();
-        }
+    @Override
+    public AccountBalance getBalance(Long userId) {
+        return ledgerService.getBalance(userId);
+    }
 
-        return saved;
+    @Override
+    public Transaction getTransaction(Long id) {
+        return transactionCache.get(id, key -> repository.findById(key)
+                .filter(transaction -> isHot(transaction, archive.snapshot().getBoundary()))
+                .orElseGet(() -> archive.snapshot().findById(key)));
     }
 
     @Override
     public List<Transaction> getAllTransactions() {
-        return repository.findAll();
+        ArchiveSnapshot archived = archive.snapshot();
+        List<Transaction> all = new ArrayList<>();
+        archived.forEach(all::add);
+        for (Transaction transaction : repository.findAll()) {
+            if (isHot(transaction, archived.getBoundary())) all.add(transaction);
+        }
+        return all;
+    }
+
+    @Override
+    public TransactionPage getTransactionsPage(String afterCursor, int limit) {
+        Transaction after = afterCursor == null ? null : decodeCursor(afterCursor);
+        ArchiveSnapshot archived = archive.snapshot();
+        LocalDateTime boundary = archived.getBoundary();
+
+        // The archive holds everything before the boundary, so a cursor there reads it first
+        List<Transaction> items = new ArrayList<>(limit);
+        boolean inArchive = boundary != null && (after == null || after.getTimestamp().isBefore(boundary));
+        if (inArchive) {
+            items.addAll(after == null ? archived.findPageAfter(null, null, limit)
+                    : archived.findPageAfter(after.getTimestamp(), after.getId(), limit));
+        }
+
+        int remaining = limit - items.size();
+        if (remaining > 0) {
+            if (inArchive) {
+                // (boundary, MIN_VALUE) as the cursor means "timestamp >= boundary"
+                items.addAll(repository.findPageAfter(boundary, Long.MIN_VALUE, Limit.of(remaining)));
+            } else if (after == null) {
+                items.addAll(repository.findAllByOrderByTimestampAscIdAsc(Limit.of(remaining)));
+            } else {
+                items.addAll(repository.findPageAfter(after.getTimestamp(), after.getId(), Limit.of(remaining)));
+            }
+        }
+
+        String nextCursor = items.size() < limit ? null : encodeCursor(items.get(items.size() - 1));
+        return new TransactionPage(items, nextCursor);
+    }
+
+    /**
+     * Writes every transaction as one JSON line, in (timestamp, id) order.
+     * Archived months come first, one decoded month at a time; table rows are
+     * then fetched through a cursor and detached once written, so memory use
+     * does not grow with the table.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportTransactions(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Transaction.class);
+        long count = 0;
+        ArchiveSnapshot archived = archive.snapshot();
+        for (Transaction transaction : archived) {
+            out.write(writer.writeValueAsBytes(transaction));
+            out.write('\n');
+            if (++count % EXPORT_FLUSH_ROWS == 0) {
+                out.flush();
+            }
+        }
+        try (Stream<Transaction> rows = repository.streamAllOrdered()) {
+            Iterator<Transaction> it = rows.iterator();
+            while (it.hasNext()) {
+                Transaction transaction = it.next();
+                if (!isHot(transaction, archived.getBoundary())) {
+                    entityManager.detach(transaction);
+                    continue;
+                }
+                out.write(writer.writeValueAsBytes(transaction));
+                out.write('\n');
+                entityManager.detach(transaction);
+                if (++count % EXPORT_FLUSH_ROWS == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        exportedRows.record(count);
+        return count;
+    }
+
+    @Override
+    public List<TransactionHistoryItem> getAccountHistory(Long userId, String direction,
+                                                          LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime start = from != null ? from : HISTORY_START;
+        LocalDateTime end = to != null ? to : HISTORY_END;
+
+        boolean sent;
+        boolean received;
+        switch (direction.toLowerCase(Locale.ROOT)) {
+            case "sent":
+                sent = true;
+                received = false;
+                break;
+            case "received":
+                sent = false;
+                received = true;
+                break;
+            case "all":
+                sent = true;
+                received = true;
+                break;
+            default:
+                throw new IllegalArgumentException("direction must be sent, received or all");
+        }
+
+        ArchiveSnapshot archived = archive.snapshot();
+        LocalDateTime boundary = archived.getBoundary();
+        LocalDateTime hotStart = boundary != null && boundary.isAfter(start) ? boundary : start;
+
+        // Two index range scans merged here, rather than an OR that neither index can serve
+        List<TransactionHistoryItem> history = new ArrayList<>();
+        if (hotStart.isBefore(end)) {
+            if (sent) history.addAll(repository.findSentHistory(userId, hotStart, end, Limit.of(limit)));
+            if (received) history.addAll(repository.findReceivedHistory(userId, hotStart, end, Limit.of(limit)));
+            history.sort(Comparator.comparing(TransactionHistoryItem::getTimestamp)
+                    .thenComparing(TransactionHistoryItem::getId).reversed());
+            if (history.size() >= limit) return history.subList(0, limit);
+        }
+
+        // Everything in the table is newer than the archive, so older months only fill the remainder
+        if (boundary != null && start.isBefore(boundary)) {
+            LocalDateTime archiveEnd = end.isBefore(boundary) ? end : boundary;
+            history.addAll(archived.findHistory(userId, sent, received, start, archiveEnd, limit - history.size()));
+        }
+        return history;
+    }
+
+    // Rows below the archive boundary are already archived and only wait to be deleted
+    private static boolean isHot(Transaction transaction, LocalDateTime boundary) {
+        return boundary == null || !transaction.getTimestamp().isBefore(boundary);
+    }
+
+    private static String encodeCursor(Transaction last) {
+        String raw = last.getTimestamp() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Transaction decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            Transaction after = new Transaction();
+            after.setTimestamp(LocalDateTime.parse(raw.substring(0, separator)));
+            after.setId(Long.parseLong(raw.substring(separator + 1)));
+            return after;
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
 
-}
\ No newline at end of file
+}
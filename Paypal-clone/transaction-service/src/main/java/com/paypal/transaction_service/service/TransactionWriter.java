@@ -0,0 +1,347 @@
+package com.paypal.transaction_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypal.transaction_service.analytics.TransactionAnalytics;
+import com.paypal.transaction_service.entity.IdempotencyKey;
+import com.paypal.transaction_service.entity.LedgerEntry;
+import com.paypal.transaction_service.entity.OutboxEvent;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.kafka.PartitionKeyStrategy;
+import com.paypal.transaction_service.repository.IdempotencyKeyRepository;
+import com.paypal.transaction_service.repository.LedgerEntryRepository;
+import com.paypal.transaction_service.repository.OutboxEventRepository;
+import com.paypal.transaction_service.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists new transactions with their ledger postings, outbox event and
+ * idempotency key.
+ * - Concurrent writes are gathered by a few writer threads into batches of up
+ *   to batch-size, waiting at most max-wait-ms for a batch to fill
+ * - A batch is one DB transaction; sequence ids from a pooled block let
+ *   Hibernate send its inserts as JDBC batches
+ * - A batch that loses an optimistic-locking race on an account balance is
+ *   retried whole, up to ledger.max-attempts times
+ * - If a batch fails otherwise, each write is retried on its own so one bad
+ *   row only fails its own caller
+ * Committed batches are appended to {@link TransactionAnalytics} before
+ * their callers are answered.
+ * With batching disabled every write is a batch of one on the caller's thread.
+ * Queue wait, commit time, batch sizes, split batches and failed writes are
+ * published as transaction.writer.* meters.
+ */
+@Component
+public class TransactionWriter {
+
+    // How often a caller waiting for room in a full queue checks for stop()
+    private static final long OFFER_RETRY_MS = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final OutboxEventRepository outboxRepository;
+    private final IdempotencyKeyRepository keyRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerService ledgerService;
+    private final TransactionAnalytics analytics;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final PartitionKeyStrategy partitionKey;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final int maxAttempts;
+    private final BlockingQueue<PendingWrite> queue;
+    private final List<Thread> writers;
+    private final Timer queueTimer;
+    private final Timer commitTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter retries;
+    private final Counter splitBatches;
+    private final Counter failedWrites;
+    private volatile boolean running;
+
+    public TransactionWriter(TransactionRepository transactionRepository,
+                             OutboxEventRepository outboxRepository,
+                             IdempotencyKeyRepository keyRepository,
+                             LedgerEntryRepository ledgerEntryRepository,
+                             LedgerService ledgerService,
+                             TransactionAnalytics analytics,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${transaction.batching.enabled:true}") boolean enabled,
+                             @Value("${transaction.batching.batch-size:50}") int batchSize,
+                             @Value("${transaction.batching.max-wait-ms:1}") long maxWaitMs,
+                             @Value("${transaction.batching.writers:2}") int writerCount,
+                             @Value("${transaction.batching.queue-capacity:10000}") int queueCapacity,
+                             @Value("${ledger.max-attempts:10}") int maxAttempts,
+                             @Value("${kafka.topic.partition-key:RECEIVER}") PartitionKeyStrategy partitionKey,
+                             MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.outboxRepository = outboxRepository;
+        this.keyRepository = keyRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerService = ledgerService;
+        this.analytics = analytics;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.partitionKey = partitionKey;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxAttempts = maxAttempts;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.writers = new ArrayList<>();
+        this.queueTimer = Timer.builder("transaction.writer.queue")
+                .description("Time from write() until a writer picks the transaction up")
+                .register(meterRegistry);
+        // Stands in for repository.save: ledger postings, inserts and commit of one batch
+        this.commitTimer = Timer.builder("transaction.writer.commit")
+                .description("Time to post and commit one batch, including optimistic-lock retries")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("transaction.writer.batch.size")
+                .register(meterRegistry);
+        this.retries = Counter.builder("transaction.writer.retries")
+                .description("Batches retried after losing an optimistic-lock race")
+                .register(meterRegistry);
+        this.splitBatches = Counter.builder("transaction.writer.split")
+                .description("Batches that failed as a whole and were retried one write at a time")
+                .register(meterRegistry);
+        this.failedWrites = Counter.builder("transaction.writer.failed")
+                .description("Writes that failed on their own; the caller gets the exception")
+                .register(meterRegistry);
+        for (int i = 0; enabled && i < writerCount; i++) {
+            writers.add(new Thread(this::runWriter, "transaction-writer-" + i));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writers.forEach(Thread::start);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.interrupt();
+            writer.join(5000);
+        }
+        PendingWrite left;
+        while ((left = queue.poll()) != null) {
+            left.result.completeExceptionally(new IllegalStateException("Transaction writer stopped"));
+        }
+    }
+
+    /**
+     * Blocks until the transaction is committed, as SUCCESS or, when the
+     * sender cannot cover it, as FAILED.
+     *
+     * @param idempotencyKey stored with the transaction, or null
+     */
+    public Transaction write(Transaction transaction, String idempotencyKey) {
+        PendingWrite pending = new PendingWrite(transaction, idempotencyKey);
+        if (!enabled) {
+            dispatch(List.of(pending));
+        } else {
+            if (!running) {
+                throw new IllegalStateException("Transaction writer stopped");
+            }
+            try {
+                while (!queue.offer(pending, OFFER_RETRY_MS, TimeUnit.MILLISECONDS)) {
+                    if (!running) {
+                        throw new IllegalStateException("Transaction writer stopped");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queuing transaction", e);
+            }
+            // Queued after stop() drained the queue: nobody is left to answer it.
+            // If it is gone, a writer or stop() took it and completes it.
+            if (!running && queue.remove(pending)) {
+                throw new IllegalStateException("Transaction writer stopped");
+            }
+        }
+
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the transactions as one batch on the caller's thread, bypassing
+     * the queue; for callers that already hold many rows, like bulk payouts.
+     * The futures are complete on return and in input order; a write that
+     * failed on its own holds its exception.
+     *
+     * @param idempotencyKeys one per transaction (entries may be null), or null
+     */
+    public List<CompletableFuture<Transaction>> writeAll(List<Transaction> transactions, List<String> idempotencyKeys) {
+        List<PendingWrite> batch = new ArrayList<>(transactions.size());
+        List<CompletableFuture<Transaction>> results = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            PendingWrite pending = new PendingWrite(transactions.get(i), idempotencyKeys != null ? idempotencyKeys.get(i) : null);
+            batch.add(pending);
+            results.add(pending.result);
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+        return results;
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - batch.size());
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                if (batch.isEmpty()) continue;
+            }
+            dispatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void dispatch(List<PendingWrite> batch) {
+        long now = System.nanoTime();
+        for (PendingWrite pending : batch) {
+            queueTimer.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSizes.record(batch.size());
+        writeBatch(batch);
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        try {
+            commitTimer.record(() -> commit(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                // The id came from the rolled-back attempt; Hibernate would try to merge it
+                batch.get(0).transaction.setId(null);
+                batch.get(0).result.completeExceptionally(e);
+                failedWrites.increment();
+                return;
+            }
+            splitBatches.increment();
+            for (PendingWrite pending : batch) {
+                pending.transaction.setId(null);
+                writeBatch(List.of(pending));
+            }
+            return;
+        }
+
+        List<Transaction> committed = new ArrayList<>(batch.size());
+        for (PendingWrite pending : batch) {
+            committed.add(pending.transaction);
+        }
+        analytics.record(committed);
+        for (PendingWrite pending : batch) {
+            pending.result.complete(pending.transaction);
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        Set<Long> accountIds = new HashSet<>();
+        for (PendingWrite pending : batch) {
+            accountIds.add(pending.transaction.getSenderId());
+            accountIds.add(pending.transaction.getReceiverId());
+        }
+        ledgerService.ensureAccounts(accountIds);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(batch));
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) throw e;
+                retries.increment();
+                for (PendingWrite pending : batch) {
+                    pending.transaction.setId(null);
+                }
+            }
+        }
+    }
+
+    private void insert(List<PendingWrite> batch) {
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        List<IdempotencyKey> keys = new ArrayList<>();
+        for (PendingWrite pending : batch) {
+            transactions.add(pending.transaction);
+        }
+        List<LedgerEntry> entries = ledgerService.post(transactions);
+        transactionRepository.saveAll(transactions);
+        ledgerEntryRepository.saveAll(entries);
+
+        List<OutboxEvent> events = new ArrayList<>(batch.size());
+        for (PendingWrite pending : batch) {
+            Transaction saved = pending.transaction;
+            // Failed transfers moved no money, so downstream services are not told about them
+            if (LedgerService.SUCCESS.equals(saved.getStatus())) {
+                try {
+                    // Published by OutboxRelay once this batch commits
+                    events.add(new OutboxEvent(partitionKey.keyOf(saved), objectMapper.writeValueAsString(saved)));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Failed to serialize transaction event", e);
+                }
+            }
+            if (pending.idempotencyKey != null) {
+                keys.add(new IdempotencyKey(pending.idempotencyKey, saved.getId(),
+                        IdempotencyKey.requestHash(saved.getSenderId(), saved.getReceiverId(), saved.getAmount())));
+            }
+        }
+        outboxRepository.saveAll(events);
+        keyRepository.saveAll(keys);
+
+        // Sends the JDBC batches here, where failures are translated like any repository call
+        transactionRepository.flush();
+    }
+
+    private static final class PendingWrite {
+        final Transaction transaction;
+        final String idempotencyKey;
+        final CompletableFuture<Transaction> result;
+        final long enqueuedAt;
+
+        PendingWrite(Transaction transaction, String idempotencyKey) {
+            this.transaction = transaction;
+            this.idempotencyKey = idempotencyKey;
+            this.result = new CompletableFuture<>();
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.paypal.transaction_service.service;
+
+/**
+ * A transfer was refused by {@link VelocityLimiter}; nothing was written.
+ * Answered with 429 Too Many Requests.
+ */
+public class VelocityLimitExceededException extends RuntimeException {
+
+    private final String limit;
+    private final long retryAfterMillis;
+
+    /**
+     * @param retryAfterMillis when the same transfer would fit again, or -1 if it never will
+     */
+    public VelocityLimitExceededException(String limit, String message, long retryAfterMillis) {
+        super(message);
+        this.limit = limit;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getLimit() {
+        return limit;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,284 @@
+package com.paypal.transaction_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Per-sender velocity limits on new transfers, checked in memory.
+ * - velocity.max-transfers-per-minute over a sliding minute of 1 s buckets
+ * - velocity.max-amount-per-day over a sliding day of 15 min buckets
+ * - Senders are spread over a fixed number of stripes, each a plain map
+ *   guarded by its own lock; a check is a few array updates under it
+ * - Windows are written to velocity.checkpoint-file every
+ *   checkpoint-interval-ms and on shutdown, and read back on startup, so a
+ *   restart does not hand every sender a fresh allowance
+ * - Senders whose windows have emptied are dropped every evict-interval-ms,
+ *   checkpoint file or not
+ * A limit of 0 turns it off. Rejections are counted by
+ * transaction.velocity.rejected, tagged with the limit that was hit.
+ */
+@Component
+public class VelocityLimiter {
+
+    private static final int MAGIC = 0x56454C31; // "VEL1"
+    private static final int MINUTE_BUCKETS = 60;
+    private static final long MINUTE_BUCKET_MILLIS = 1000;
+    private static final int DAY_BUCKETS = 96;
+    private static final long DAY_BUCKET_MILLIS = 15 * 60 * 1000;
+
+    private final int maxTransfersPerMinute;
+    private final long maxCentsPerDay;
+    private final Stripe[] stripes;
+    private final Path checkpointFile;
+    private final Counter transfersRejected;
+    private final Counter amountRejected;
+
+    public VelocityLimiter(@Value("${velocity.max-transfers-per-minute:0}") int maxTransfersPerMinute,
+                           @Value("${velocity.max-amount-per-day:0}") double maxAmountPerDay,
+                           @Value("${velocity.stripes:64}") int stripeCount,
+                           @Value("${velocity.checkpoint-file:}") String checkpointFile,
+                           MeterRegistry meterRegistry) {
+        if (maxTransfersPerMinute < 0 || maxAmountPerDay < 0) {
+            throw new IllegalArgumentException("velocity limits must not be negative");
+        }
+        this.maxTransfersPerMinute = maxTransfersPerMinute;
+        this.maxCentsPerDay = toCents(maxAmountPerDay);
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.checkpointFile = checkpointFile.isBlank() ? null : Paths.get(checkpointFile);
+        this.transfersRejected = rejectedCounter(meterRegistry, "transfers-per-minute");
+        this.amountRejected = rejectedCounter(meterRegistry, "amount-per-day");
+    }
+
+    /**
+     * Counts a transfer against the sender's windows, or refuses it without counting it.
+     *
+     * @return the time it was counted at, to pass to {@link #release}
+     * @throws VelocityLimitExceededException if it would exceed a limit
+     */
+    public long acquire(long senderId, double amount) {
+        return acquire(senderId, amount, 1);
+    }
+
+    /**
+     * Like {@link #acquire}, for one line of a bulk payout: the whole payout
+     * is one request, so it only counts towards the daily amount
+     */
+    public long acquirePayout(long senderId, double amount) {
+        return acquire(senderId, amount, 0);
+    }
+
+    /**
+     * Takes back a transfer counted by {@link #acquire} that moved no money
+     */
+    public void release(long senderId, double amount, long acquiredAt) {
+        release(senderId, amount, acquiredAt, 1);
+    }
+
+    /**
+     * Takes back a payout line counted by {@link #acquirePayout} that moved no money
+     */
+    public void releasePayout(long senderId, double amount, long acquiredAt) {
+        release(senderId, amount, acquiredAt, 0);
+    }
+
+    private long acquire(long senderId, double amount, int transfers) {
+        long now = System.currentTimeMillis();
+        if (maxTransfersPerMinute == 0 && maxCentsPerDay == 0) return now;
+        long cents = toCents(amount);
+        Stripe stripe = stripeOf(senderId);
+        synchronized (stripe) {
+            Windows windows = stripe.windows.get(senderId);
+            if (windows == null) {
+                windows = new Windows();
+                stripe.windows.put(senderId, windows);
+            }
+            if (maxTransfersPerMinute > 0 && transfers > 0) {
+                long wait = windows.transfers.millisUntilFits(now, 1, maxTransfersPerMinute);
+                if (wait != 0) {
+                    transfersRejected.increment();
+                    throw new VelocityLimitExceededException("transfers-per-minute",
+                            "Sender " + senderId + " is limited to " + maxTransfersPerMinute + " transfers per minute", wait);
+                }
+            }
+            if (maxCentsPerDay > 0) {
+                long wait = windows.cents.millisUntilFits(now, cents, maxCentsPerDay);
+                if (wait != 0) {
+                    amountRejected.increment();
+                    throw new VelocityLimitExceededException("amount-per-day",
+                            "Sender " + senderId + " is limited to " + BigDecimal.valueOf(maxCentsPerDay, 2).toPlainString() + " sent per day", wait);
+                }
+            }
+            windows.transfers.add(now, transfers);
+            windows.cents.add(now, cents);
+        }
+        return now;
+    }
+
+    private void release(long senderId, double amount, long acquiredAt, int transfers) {
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripeOf(senderId);
+        synchronized (stripe) {
+            Windows windows = stripe.windows.get(senderId);
+            if (windows == null) return;
+            windows.transfers.subtract(now, acquiredAt, transfers);
+            windows.cents.subtract(now, acquiredAt, toCents(amount));
+        }
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) return;
+        int restored = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != MINUTE_BUCKETS || in.readLong() != MINUTE_BUCKET_MILLIS
+                    || in.readInt() != DAY_BUCKETS || in.readLong() != DAY_BUCKET_MILLIS) {
+                System.err.println("❌ Ignoring velocity checkpoint " + checkpointFile + ": different window layout");
+                return;
+            }
+            int count;
+            while ((count = in.readInt()) >= 0) {
+                for (int i = 0; i < count; i++) {
+                    long senderId = in.readLong();
+                    Windows windows = new Windows();
+                    windows.transfers.readFrom(in);
+                    windows.cents.readFrom(in);
+                    Stripe stripe = stripeOf(senderId);
+                    synchronized (stripe) {
+                        stripe.windows.put(senderId, windows);
+                    }
+                    restored++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Failed to read velocity checkpoint " + checkpointFile + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("🚦 Restored velocity windows of " + restored + " senders");
+    }
+
+    @Scheduled(fixedDelayString = "${velocity.evict-interval-ms:60000}")
+    public void evictIdle() {
+        evictIdle(System.currentTimeMillis());
+    }
+
+    /**
+     * @return the number of senders dropped
+     */
+    int evictIdle(long now) {
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evicted += stripe.evictIdle(now);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Each stripe is copied under its own lock, then the file is written
+     * without holding any, so checks only wait for a memory copy
+     */
+    @Scheduled(fixedDelayString = "${velocity.checkpoint-interval-ms:5000}")
+    @PreDestroy
+    public synchronized void checkpoint() {
+        if (checkpointFile == null) return;
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(MINUTE_BUCKETS);
+            out.writeLong(MINUTE_BUCKET_MILLIS);
+            out.writeInt(DAY_BUCKETS);
+            out.writeLong(DAY_BUCKET_MILLIS);
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.evictIdle(now);
+                    out.writeInt(stripe.windows.size());
+                    for (Map.Entry<Long, Windows> entry : stripe.windows.entrySet()) {
+                        out.writeLong(entry.getKey());
+                        entry.getValue().transfers.writeTo(out);
+                        entry.getValue().cents.writeTo(out);
+                    }
+                }
+            }
+            out.writeInt(-1);
+
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            if (checkpointFile.getParent() != null) {
+                Files.createDirectories(checkpointFile.getParent());
+            }
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                bytes.writeTo(file);
+            }
+            Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("❌ Failed to checkpoint velocity windows: " + e.getMessage());
+        }
+    }
+
+    private Stripe stripeOf(long senderId) {
+        // Fibonacci hashing, so consecutive ids do not share a stripe
+        return stripes[Math.floorMod((int) ((senderId * 0x9E3779B97F4A7C15L) >>> 32), stripes.length)];
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String limit) {
+        return Counter.builder("transaction.velocity.rejected")
+                .description("Transfers refused by a per-sender velocity limit")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+
+    private static final class Stripe {
+        final Map<Long, Windows> windows = new HashMap<>();
+
+        // Senders idle for a day have nothing left to limit
+        int evictIdle(long now) {
+            int evicted = 0;
+            Iterator<Windows> it = windows.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isEmpty(now)) {
+                    it.remove();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+    }
+
+    private static final class Windows {
+        final SlidingWindow transfers = new SlidingWindow(MINUTE_BUCKETS, MINUTE_BUCKET_MILLIS);
+        final SlidingWindow cents = new SlidingWindow(DAY_BUCKETS, DAY_BUCKET_MILLIS);
+
+        boolean isEmpty(long now) {
+            return transfers.sum(now) == 0 && cents.sum(now) == 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.paypal.transaction_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallbackTargetsTest {
+
+    @Test
+    void internalAddressesAreRefused() {
+        CallbackTargets targets = new CallbackTargets(new String[0], false);
+        for (String url : new String[] {
+                "http://127.0.0.1/hook", "http://localhost:8082/api/transactions/all", "http://0.0.0.0/",
+                "http://10.1.2.3/", "http://172.16.0.1/", "http://192.168.1.1/",
+                "http://169.254.169.254/latest/meta-data/", "http://100.100.100.200/", "http://[::1]/",
+                "http://[fd00:ec2::254]/", "http://[fe80::1]/", "http://[::ffff:127.0.0.1]/", "http://224.0.0.1/"}) {
+            assertFalse(targets.allows(URI.create(url)), url);
+        }
+        assertTrue(targets.allows(URI.create("https://93.184.216.34/hook")));
+        assertTrue(targets.allows(URI.create("https://[2606:2800:220:1::]/hook")));
+    }
+
+    @Test
+    void allowlistLimitsHostsByNameOrDomain() {
+        CallbackTargets targets = new CallbackTargets(new String[] {"93.184.216.34", " *.Example.com "}, false);
+        assertTrue(targets.allows(URI.create("https://93.184.216.34/hook")));
+        assertFalse(targets.allows(URI.create("https://93.184.216.35/hook")));
+        // Listed, yet still refused for resolving to an internal address
+        assertFalse(new CallbackTargets(new String[] {"127.0.0.1"}, false).allows(URI.create("http://127.0.0.1/")));
+        // Subdomains only; no lookup is made for hosts outside the list
+        assertFalse(targets.allows(URI.create("https://notexample.com/hook")));
+        assertFalse(targets.allows(URI.create("https://example.com.attacker.test/hook")));
+    }
+
+    @Test
+    void privateAddressesCanBeAllowedForLocalTesting() {
+        CallbackTargets targets = new CallbackTargets(new String[0], true);
+        assertTrue(targets.allows(URI.create("http://127.0.0.1:9000/hook")));
+        assertFalse(targets.allows(URI.create("http://unresolvable.invalid/hook")));
+    }
+
+    @Test
+    void carrierGradeNatIsOnlyItsOwnRange() throws UnknownHostException {
+        assertFalse(CallbackTargets.isPublic(InetAddress.getByName("100.64.0.1")));
+        assertFalse(CallbackTargets.isPublic(InetAddress.getByName("100.127.255.254")));
+        assertTrue(CallbackTargets.isPublic(InetAddress.getByName("100.63.255.255")));
+        assertTrue(CallbackTargets.isPublic(InetAddress.getByName("100.128.0.1")));
+    }
+}
@@ -0,0 +1,189 @@
+package com.paypal.transaction_service.service;
+
+import com.paypal.transaction_service.dto.AccountBalance;
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.repository.AccountRepository;
+import com.paypal.transaction_service.repository.LedgerEntryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LedgerServiceTest {
+
+    // Configured as hot in application-test.yml
+    private static final long HOT_ACCOUNT = 900_000_000L;
+
+    // Above the ids used by TransactionWriterTest, since the context and its database are shared
+    private static final AtomicLong ACCOUNT_IDS = new AtomicLong(200_000_000);
+
+    @Autowired
+    private TransactionWriter writer;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private LedgerEntryRepository entryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void transferAboveTheBalanceFailsAndMovesNothing() {
+        long sender = fundedAccount(50);
+        long receiver = ACCOUNT_IDS.incrementAndGet();
+
+        assertEquals(LedgerService.FAILED, writer.write(transfer(sender, receiver, 50.01), null).getStatus());
+        assertEquals(LedgerService.SUCCESS, writer.write(transfer(sender, receiver, 50), null).getStatus());
+        assertEquals(LedgerService.FAILED, writer.write(transfer(sender, receiver, 0.01), null).getStatus());
+
+        assertBalance("0", "0", sender);
+        assertBalance("50", "0", receiver);
+    }
+
+    @Test
+    void creditsToAHotAccountAreNotSpendableUntilSwept() {
+        ledgerService.sweep();
+        BigDecimal before = ledgerService.getBalance(HOT_ACCOUNT).getBalance();
+        long sender = fundedAccount(30);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(LedgerService.SUCCESS, writer.write(transfer(sender, HOT_ACCOUNT, 10), null).getStatus());
+        }
+        AccountBalance buffered = ledgerService.getBalance(HOT_ACCOUNT);
+        assertEquals(0, before.compareTo(buffered.getBalance()));
+        assertEquals(0, new BigDecimal("30").compareTo(buffered.getPendingCredits()));
+        assertBalance("0", "0", sender);
+
+        // Only the part already swept can be spent
+        long receiver = ACCOUNT_IDS.incrementAndGet();
+        double spendable = before.doubleValue();
+        assertEquals(LedgerService.FAILED, writer.write(transfer(HOT_ACCOUNT, receiver, spendable + 30), null).getStatus());
+
+        ledgerService.sweep();
+        AccountBalance swept = ledgerService.getBalance(HOT_ACCOUNT);
+        assertEquals(0, before.add(new BigDecimal("30")).compareTo(swept.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(swept.getPendingCredits()));
+        assertEquals(LedgerService.SUCCESS, writer.write(transfer(HOT_ACCOUNT, receiver, spendable + 30), null).getStatus());
+        assertBalance(String.valueOf(spendable + 30), "0", receiver);
+    }
+
+    @Test
+    void concurrentSweepsDrainEveryBatchAndApplyEachEntryOnce() throws Exception {
+        ledgerService.sweep();
+        BigDecimal before = ledgerService.getBalance(HOT_ACCOUNT).getBalance();
+        long sender = fundedAccount(100);
+        for (int i = 0; i < 7; i++) {
+            writer.write(transfer(sender, HOT_ACCOUNT, 1), null);
+        }
+        assertBalance(before.toPlainString(), "7", HOT_ACCOUNT);
+
+        // Batches of two, so the last of the seven entries is only reached by looping;
+        // the second sweeper stands in for another instance reading the same entries
+        LedgerService smallBatches = new LedgerService(accountRepository, entryRepository, transactionTemplate,
+                new Long[] {HOT_ACCOUNT}, 2);
+        LedgerService otherInstance = new LedgerService(accountRepository, entryRepository, transactionTemplate,
+                new Long[] {HOT_ACCOUNT}, 2);
+        CompletableFuture<Void> other = CompletableFuture.runAsync(otherInstance::sweep);
+        smallBatches.sweep();
+        other.get();
+        smallBatches.sweep();
+
+        assertBalance(before.add(new BigDecimal("7")).toPlainString(), "0", HOT_ACCOUNT);
+        assertEquals(0, BigDecimal.ZERO.compareTo(entryRepository.sumUnapplied(LedgerService.EXTERNAL_ACCOUNT_ID)));
+    }
+
+    @Test
+    void concurrentDebitsOfOneAccountAreRetriedNotLost() throws Exception {
+        int threads = 4;
+        int writesPerThread = 25;
+        long sender = fundedAccount(threads * writesPerThread);
+        long receiver = ACCOUNT_IDS.incrementAndGet();
+        double retriesBefore = meterRegistry.counter("transaction.writer.retries").count();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<Integer>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    int succeeded = 0;
+                    for (int i = 0; i < writesPerThread; i++) {
+                        // Each writeAll runs in its own DB transaction on this thread
+                        CompletableFuture<Transaction> result = writer.writeAll(List.of(transfer(sender, receiver, 1)), null).get(0);
+                        try {
+                            assertEquals(LedgerService.SUCCESS, result.join().getStatus());
+                            succeeded++;
+                        } catch (CompletionException e) {
+                            // Lost every attempt to the other writers; it must have moved nothing
+                            assertTrue(e.getCause() instanceof OptimisticLockingFailureException, e.getCause().toString());
+                        }
+                    }
+                    return succeeded;
+                }));
+            }
+            int succeeded = 0;
+            for (Future<Integer> worker : workers) {
+                succeeded += worker.get();
+            }
+
+            assertTrue(succeeded > 0);
+            assertBalance(String.valueOf(threads * writesPerThread - succeeded), "0", sender);
+            assertBalance(String.valueOf(succeeded), "0", receiver);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(meterRegistry.counter("transaction.writer.retries").count() > retriesBefore,
+                "writers never conflicted on the shared sender row");
+    }
+
+    private long fundedAccount(double amount) {
+        long account = ACCOUNT_IDS.incrementAndGet();
+        assertEquals(LedgerService.SUCCESS, writer.write(transfer(LedgerService.EXTERNAL_ACCOUNT_ID, account, amount), null).getStatus());
+        return account;
+    }
+
+    private static Transaction transfer(long sender, long receiver, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderId(sender);
+        transaction.setReceiverId(receiver);
+        transaction.setAmount(amount);
+        transaction.setStatus("PENDING");
+        transaction.setTimestamp(LocalDateTime.now());
+        return transaction;
+    }
+
+    private void assertBalance(String expected, String expectedPending, long account) {
+        AccountBalance balance = ledgerService.getBalance(account);
+        assertEquals(0, new BigDecimal(expected).compareTo(balance.getBalance()), "balance of " + account + " was " + balance.getBalance());
+        assertEquals(0, new BigDecimal(expectedPending).compareTo(balance.getPendingCredits()), "pending credits of " + account);
+    }
+}
@@ -0,0 +1,98 @@
+package com.paypal.transaction_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingWindowTest {
+
+    // Ten buckets of one second, starting on a bucket boundary
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void valuesLeaveTheWindowWithTheirBucket() {
+        SlidingWindow window = new SlidingWindow(10, 1000);
+        window.add(T0, 3);
+        window.add(T0 + 4_500, 5);
+
+        assertEquals(8, window.sum(T0 + 9_999));
+        assertEquals(5, window.sum(T0 + 10_000));
+        assertEquals(5, window.sum(T0 + 13_999));
+        assertEquals(0, window.sum(T0 + 14_000));
+    }
+
+    @Test
+    void idleLongerThanTheWindowClearsIt() {
+        SlidingWindow window = new SlidingWindow(10, 1000);
+        window.add(T0, 3);
+        window.add(T0 + 9_000, 4);
+
+        assertEquals(0, window.sum(T0 + 60_000));
+        window.add(T0 + 60_000, 1);
+        assertEquals(1, window.sum(T0 + 60_000));
+    }
+
+    @Test
+    void clockSteppingBackAddsToTheNewestBucket() {
+        SlidingWindow window = new SlidingWindow(10, 1000);
+        window.add(T0 + 5_000, 2);
+        window.add(T0, 3);
+
+        assertEquals(5, window.sum(T0 + 5_000));
+        // Both left with the newest bucket
+        assertEquals(0, window.sum(T0 + 15_000));
+    }
+
+    @Test
+    void subtractOnlyTakesBackValuesStillInTheWindow() {
+        SlidingWindow window = new SlidingWindow(10, 1000);
+        window.add(T0, 3);
+        window.add(T0 + 2_000, 4);
+
+        window.subtract(T0 + 3_000, T0 + 2_000, 4);
+        assertEquals(3, window.sum(T0 + 3_000));
+        // Already aged out: nothing to take back
+        window.subtract(T0 + 10_000, T0, 3);
+        assertEquals(0, window.sum(T0 + 10_000));
+        // Not added yet
+        window.subtract(T0 + 10_000, T0 + 20_000, 3);
+        assertEquals(0, window.sum(T0 + 10_000));
+    }
+
+    @Test
+    void millisUntilFitsWaitsForTheOldestBucketsThatMakeRoom() {
+        SlidingWindow window = new SlidingWindow(10, 1000);
+        window.add(T0, 4);
+        window.add(T0 + 3_000, 4);
+        window.add(T0 + 6_000, 2);
+
+        assertEquals(0, window.millisUntilFits(T0 + 7_000, 0, 10));
+        // Room for 3 once the first 4 leave at T0 + 10 s
+        assertEquals(3_000, window.millisUntilFits(T0 + 7_000, 3, 10));
+        // Room for 7 once the second 4 leave at T0 + 13 s
+        assertEquals(6_000, window.millisUntilFits(T0 + 7_000, 7, 10));
+        assertEquals(-1, window.millisUntilFits(T0 + 7_000, 11, 10));
+    }
+
+    @Test
+    void checkpointRoundTripKeepsTheWindowAging() throws IOException {
+        SlidingWindow window = new SlidingWindow(10, 1000);
+        window.add(T0, 3);
+        window.add(T0 + 5_000, 4);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        window.writeTo(new DataOutputStream(bytes));
+        SlidingWindow restored = new SlidingWindow(10, 1000);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(7, restored.sum(T0 + 5_000));
+        assertEquals(4, restored.sum(T0 + 10_000));
+        assertEquals(0, restored.sum(T0 + 15_000));
+    }
+}
@@ -0,0 +1,164 @@
+package com.paypal.transaction_service.service;
+
+import com.paypal.transaction_service.entity.Transaction;
+import com.paypal.transaction_service.kafka.PartitionKeyStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionWriterTest {
+
+    // Each test works on its own accounts, since the context and its database are shared
+    private static final AtomicLong ACCOUNT_IDS = new AtomicLong(100_000_000);
+
+    @Autowired
+    private TransactionWriter writer;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void keyRepeatedInsideABatchFailsOnlyTheSecondWrite() {
+        long sender = fundedAccount(100);
+        long receiver = ACCOUNT_IDS.incrementAndGet();
+        String key = "writer-test-" + sender;
+        double splitBefore = meterRegistry.counter("transaction.writer.split").count();
+        double failedBefore = meterRegistry.counter("transaction.writer.failed").count();
+
+        List<CompletableFuture<Transaction>> results = writer.writeAll(
+                transfers(sender, receiver, 5, 5),
+                Arrays.asList(key + "-1", key + "-2", key + "-2", key + "-4", key + "-5"));
+
+        assertCommitted(results, 0, 1, 3, 4);
+        assertTrue(results.get(2).isCompletedExceptionally());
+        assertEquals(splitBefore + 1, meterRegistry.counter("transaction.writer.split").count());
+        assertEquals(failedBefore + 1, meterRegistry.counter("transaction.writer.failed").count());
+        assertBalance("80.0", sender);
+        assertBalance("20.0", receiver);
+    }
+
+    @Test
+    void keyStoredByAnEarlierWriteFailsOnlyItsRow() {
+        long sender = fundedAccount(100);
+        long receiver = ACCOUNT_IDS.incrementAndGet();
+        String key = "writer-test-" + sender;
+        writer.write(transfers(sender, receiver, 1, 10).get(0), key);
+
+        List<Transaction> batch = transfers(sender, receiver, 3, 10);
+        List<CompletableFuture<Transaction>> results = writer.writeAll(batch, Arrays.asList(null, key, null));
+
+        assertCommitted(results, 0, 2);
+        assertTrue(results.get(1).isCompletedExceptionally());
+        // The id came from the rolled-back batch and must not be reused
+        assertNull(batch.get(1).getId());
+        assertBalance("70.0", sender);
+        assertBalance("30.0", receiver);
+    }
+
+    @Test
+    void transfersOfOneBatchAreCheckedAgainstTheBalanceInOrder() {
+        long sender = fundedAccount(25);
+        long receiver = ACCOUNT_IDS.incrementAndGet();
+
+        List<CompletableFuture<Transaction>> results = writer.writeAll(transfers(sender, receiver, 3, 10), null);
+
+        assertEquals(LedgerService.SUCCESS, results.get(0).join().getStatus());
+        assertEquals(LedgerService.SUCCESS, results.get(1).join().getStatus());
+        assertEquals(LedgerService.FAILED, results.get(2).join().getStatus());
+        assertBalance("5.0", sender);
+        assertBalance("20.0", receiver);
+    }
+
+    private long fundedAccount(double amount) {
+        long account = ACCOUNT_IDS.incrementAndGet();
+        Transaction deposit = new Transaction();
+        deposit.setSenderId(LedgerService.EXTERNAL_ACCOUNT_ID);
+        deposit.setReceiverId(account);
+        deposit.setAmount(amount);
+        deposit.setStatus("PENDING");
+        deposit.setTimestamp(LocalDateTime.now());
+        assertEquals(LedgerService.SUCCESS, writer.write(deposit, null).getStatus());
+        return account;
+    }
+
+    private static List<Transaction> transfers(long sender, long receiver, int count, double amount) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSenderId(sender);
+            transaction.setReceiverId(receiver);
+            transaction.setAmount(amount);
+            transaction.setStatus("PENDING");
+            transaction.setTimestamp(LocalDateTime.now());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Test
+    void writesWaitingWhenTheWriterStopsFailInsteadOfHanging() throws Exception {
+        // No writer threads and room for one write, so one caller is queued and the rest
+        // wait for room; stop() drains the queue while they keep filling it
+        TransactionWriter stopping = new TransactionWriter(null, null, null, null, null, null, null, null,
+                true, 50, 1, 0, 1, 10, PartitionKeyStrategy.RECEIVER, new SimpleMeterRegistry());
+        stopping.start();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Transaction>> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                callers.add(pool.submit(() -> stopping.write(transfers(1, 2, 1, 5).get(0), null)));
+            }
+            Thread.sleep(200);
+            stopping.stop();
+
+            for (Future<Transaction> caller : callers) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+            assertThrows(IllegalStateException.class, () -> stopping.write(transfers(1, 2, 1, 5).get(0), null));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void assertCommitted(List<CompletableFuture<Transaction>> results, int... indexes) {
+        for (int i : indexes) {
+            Transaction saved = results.get(i).join();
+            assertNotNull(saved.getId());
+            assertEquals(LedgerService.SUCCESS, saved.getStatus());
+        }
+    }
+
+    private void assertBalance(String expected, long account) {
+        BigDecimal balance = ledgerService.getBalance(account).getBalance();
+        assertEquals(0, new BigDecimal(expected).compareTo(balance), "balance of " + account + " was " + balance);
+    }
+}
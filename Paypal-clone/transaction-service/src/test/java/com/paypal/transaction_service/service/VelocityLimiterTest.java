@@ -0,0 +1,126 @@
+package com.paypal.transaction_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VelocityLimiterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void zeroLimitsLetEverythingThrough() {
+        VelocityLimiter limiter = new VelocityLimiter(0, 0, 4, "", new SimpleMeterRegistry());
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(1, 1_000_000);
+        }
+    }
+
+    @Test
+    void transfersPerMinuteAreCountedPerSender() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VelocityLimiter limiter = new VelocityLimiter(3, 0, 4, "", meterRegistry);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(1, 10);
+        }
+
+        VelocityLimitExceededException e = assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire(1, 10));
+        assertEquals("transfers-per-minute", e.getLimit());
+        assertTrue(e.getRetryAfterMillis() > 0 && e.getRetryAfterMillis() <= 60_000, "retry after " + e.getRetryAfterMillis());
+        assertEquals(1, meterRegistry.counter("transaction.velocity.rejected", "limit", "transfers-per-minute").count());
+        // Other senders have their own windows, stripe or no stripe
+        for (long sender = 2; sender < 10; sender++) {
+            limiter.acquire(sender, 10);
+        }
+        // Payout lines only count towards the daily amount
+        limiter.acquirePayout(1, 10);
+    }
+
+    @Test
+    void amountPerDayRefusesWhatWouldNotFit() {
+        VelocityLimiter limiter = new VelocityLimiter(0, 100, 4, "", new SimpleMeterRegistry());
+        limiter.acquire(1, 60);
+        limiter.acquirePayout(1, 39.99);
+
+        VelocityLimitExceededException e = assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire(1, 0.02));
+        assertEquals("amount-per-day", e.getLimit());
+        assertTrue(e.getRetryAfterMillis() > 0 && e.getRetryAfterMillis() <= 24 * 60 * 60 * 1000L);
+        limiter.acquire(1, 0.01);
+
+        // More than the whole limit never fits
+        assertEquals(-1, assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire(2, 100.01)).getRetryAfterMillis());
+    }
+
+    @Test
+    void releasedTransfersDoNotCount() {
+        VelocityLimiter limiter = new VelocityLimiter(2, 100, 4, "", new SimpleMeterRegistry());
+        long first = limiter.acquire(1, 60);
+        limiter.acquire(1, 40);
+        limiter.release(1, 60, first);
+
+        limiter.acquire(1, 60);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire(1, 1));
+
+        long payout = limiter.acquirePayout(2, 100);
+        limiter.releasePayout(2, 100, payout);
+        limiter.acquire(2, 100);
+    }
+
+    @Test
+    void idleSendersAreEvictedWithoutACheckpointFile() {
+        VelocityLimiter limiter = new VelocityLimiter(1, 0, 4, "", new SimpleMeterRegistry());
+        for (long sender = 1; sender <= 10; sender++) {
+            limiter.acquire(sender, 10);
+        }
+        assertEquals(0, limiter.evictIdle(System.currentTimeMillis()));
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire(1, 10));
+
+        // A day later every window is empty
+        assertEquals(10, limiter.evictIdle(System.currentTimeMillis() + 24 * 60 * 60 * 1000L));
+        limiter.acquire(1, 10);
+    }
+
+    @Test
+    void checkpointCarriesWindowsOverARestart() {
+        String file = directory.resolve("velocity.bin").toString();
+        VelocityLimiter before = new VelocityLimiter(2, 0, 4, file, new SimpleMeterRegistry());
+        before.acquire(1, 10);
+        before.acquire(1, 10);
+        before.acquire(2, 10);
+        before.checkpoint();
+
+        VelocityLimiter after = new VelocityLimiter(2, 0, 8, file, new SimpleMeterRegistry());
+        after.restore();
+        assertThrows(VelocityLimitExceededException.class, () -> after.acquire(1, 10));
+        after.acquire(2, 10);
+        assertThrows(VelocityLimitExceededException.class, () -> after.acquire(2, 10));
+    }
+
+    @Test
+    void checkpointOfAnotherLayoutIsIgnored() throws IOException {
+        Path file = directory.resolve("velocity.bin");
+        VelocityLimiter before = new VelocityLimiter(1, 0, 4, file.toString(), new SimpleMeterRegistry());
+        before.acquire(1, 10);
+        before.checkpoint();
+
+        // Same records, but written for 30 minute buckets instead of 60
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 30);
+        Files.write(file, bytes);
+
+        VelocityLimiter after = new VelocityLimiter(1, 0, 4, file.toString(), new SimpleMeterRegistry());
+        after.restore();
+        after.acquire(1, 10);
+    }
+}